@@ -0,0 +1,71 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.tools.LocalMessage;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
+import ru.sap.po.mapping.hrmd.router.trace.TraceLevel;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HRMD_to_ReceiverDetermination#getReceiversFromDocument} on a DOM tree parsed in advance,
+ * i.e. routing of 'dom' parser engine without parsing.
+ *
+ * DOM tree of 500 MB message takes several GB of heap,
+ * add <code>-jvmArgsAppend -Xmx16g</code> if fork fails with <code>OutOfMemoryError</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class DocumentScanBenchmark {
+
+	@Param({"10", "1024", "102400", "512000"})
+	public long sizeKb;
+
+	private Document document;
+	private LocalMessage message;
+	private RouterConfiguration configuration;
+	private RouterTrace trace;
+	private HRMD_to_ReceiverDetermination mapping;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		RouterBenchmarks.configure("dom");
+		configuration = RouterConfiguration.getCurrent();
+		trace = new RouterTrace(null, TraceLevel.WARNING, false);
+
+		byte[] payload = RouterBenchmarks.payload(sizeKb);
+		document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(payload));
+
+		Map<String, String> parameters = RouterBenchmarks.parameters();
+		message = new LocalMessage(new byte[0], RouterBenchmarks.ICO_KEY, "benchmark", parameters);
+		mapping = new HRMD_to_ReceiverDetermination();
+	}
+
+	@Benchmark
+	public Map<String, String> getReceiversFromDocument() {
+		MessageContext ctx = new MessageContext(message.getInput(), configuration, trace);
+		mapping.getReceiversFromDocument(document, ctx);
+		return ctx.getReceivers();
+	}
+
+}
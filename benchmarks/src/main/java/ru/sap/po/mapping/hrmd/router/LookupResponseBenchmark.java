@@ -0,0 +1,63 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
+import ru.sap.po.mapping.hrmd.router.trace.TraceLevel;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HRMD_to_ReceiverDetermination#parseMappingParameters} of <tt>IntegratedConfigurationReadResponse</tt>
+ * with given number of <code>MappingParamters</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupResponseBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int mappingParameters;
+
+	private byte[] response;
+	private RouterTrace trace;
+	private HRMD_to_ReceiverDetermination mapping;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<ns1:IntegratedConfigurationReadResponse xmlns:ns1=\"http://sap.com/xi/BASIS\">");
+		sb.append("<IntegratedConfiguration><MappingParamters>");
+		for (int i = 0; i < mappingParameters; i++) {
+			sb.append("<String><Name>").append(String.format("C%04d", i)).append("</Name>");
+			sb.append("<Value>RECEIVER_").append(i % 10).append("</Value></String>");
+		}
+		sb.append("</MappingParamters></IntegratedConfiguration></ns1:IntegratedConfigurationReadResponse>");
+		response = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+		trace = new RouterTrace(null, TraceLevel.WARNING, false);
+		mapping = new HRMD_to_ReceiverDetermination();
+	}
+
+	@Benchmark
+	public Map<String, String> parseMappingParameters() {
+		return mapping.parseMappingParameters(new ByteArrayInputStream(response), trace);
+	}
+
+}
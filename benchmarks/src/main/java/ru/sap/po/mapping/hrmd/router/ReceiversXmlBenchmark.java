@@ -0,0 +1,56 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
+import ru.sap.po.mapping.hrmd.router.trace.TraceLevel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HRMD_to_ReceiverDetermination#generateReceiversXML} of given number of company codes,
+ * which are routed to a tenth as many receiver systems.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiversXmlBenchmark {
+
+	@Param({"1", "10", "100", "1000"})
+	public int companyCodes;
+
+	private Map<String, String> receivers;
+	private RouterTrace trace;
+	private HRMD_to_ReceiverDetermination mapping;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		receivers = new HashMap<>();
+		for (int i = 0; i < companyCodes; i++) {
+			receivers.put(String.format("C%04d", i), "RECEIVER_" + (i / 10));
+		}
+		trace = new RouterTrace(null, TraceLevel.WARNING, false);
+		mapping = new HRMD_to_ReceiverDetermination();
+	}
+
+	@Benchmark
+	public byte[] generateReceiversXML() {
+		return mapping.generateReceiversXML(receivers, trace);
+	}
+
+}
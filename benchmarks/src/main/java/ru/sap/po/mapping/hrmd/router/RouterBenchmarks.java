@@ -0,0 +1,92 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.sap.po.mapping.hrmd.router.config.RouterPropertiesHandler;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+import ru.sap.po.mapping.hrmd.router.tools.HrmdSampleGenerator;
+import ru.sap.po.mapping.hrmd.router.tools.LoadDriver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Entry point of benchmarks jar and scenario, shared by benchmarks.
+ *
+ * Runs JMH with given command line options and always adds gc profiler, so allocation rate
+ * per operation is reported together with throughput:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [JMH options, e.g. TransformBenchmark -p sizeKb=10,1024]
+ * </pre>
+ * Benchmarks are declared in the package of mapping program to call its package-private methods.
+ */
+public final class RouterBenchmarks {
+
+	static final IcoKey ICO_KEY =
+			new IcoKey("HR_SENDER", "HRMD_A.HRMD_A09", "urn:sap-com:document:sap:idoc:messages");
+
+	/**
+	 * Number of distinct company codes of synthetic messages.
+	 */
+	static final int COMPANY_CODES = 50;
+
+	private RouterBenchmarks() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp()) {
+			commandLine.showHelp();
+			return;
+		}
+		Options options = new OptionsBuilder()
+				.parent(commandLine)
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+	/**
+	 * Publishes configuration of "router.properties" of mapping program with given parser engine.
+	 *
+	 * @param engine value of "parser.engine"
+	 */
+	static void configure(String engine) {
+		Properties properties = new Properties();
+		try (InputStream is = RouterBenchmarks.class.getClassLoader().getResourceAsStream("router.properties")) {
+			if (is != null) properties.load(is);
+		} catch (IOException ioe) {
+			throw new IllegalStateException("Can't read router.properties", ioe);
+		}
+		properties.setProperty("parser.engine", engine);
+		RouterPropertiesHandler.getInstance().setProperties(properties);
+	}
+
+	/**
+	 * @return Operation Mapping parameters of all company codes of synthetic messages
+	 */
+	static Map<String, String> parameters() {
+		Map<String, String> parameters = new HashMap<>();
+		for (int i = 0; i < COMPANY_CODES; i++) {
+			parameters.put(HrmdSampleGenerator.parameterName(i), LoadDriver.receiverSystem(i));
+		}
+		return parameters;
+	}
+
+	/**
+	 * @param sizeKb approximate payload size in KB
+	 *
+	 * @return synthetic message with 5% of organizational management objects and two historical segments per person
+	 */
+	static byte[] payload(long sizeKb) {
+		return new HrmdSampleGenerator(HrmdSampleGenerator.personsForSize(sizeKb * 1024), 0.05, 2,
+				COMPANY_CODES, sizeKb).generate();
+	}
+
+}
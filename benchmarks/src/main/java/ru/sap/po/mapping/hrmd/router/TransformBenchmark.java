@@ -0,0 +1,62 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sap.po.mapping.hrmd.router.tools.LocalMessage;
+import ru.sap.po.mapping.hrmd.router.tools.SimulatedLookupConnector;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole {@link HRMD_to_ReceiverDetermination#transform} of one message with each parser engine.
+ * Lookup is answered by {@link SimulatedLookupConnector} without latency.
+ *
+ * Messages of 500 MB are processed by 'dom' engine only with several GB of heap,
+ * add <code>-jvmArgsAppend -Xmx16g</code> if fork fails with <code>OutOfMemoryError</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TransformBenchmark {
+
+	@Param({"stax", "bytes", "dom"})
+	public String engine;
+
+	@Param({"10", "1024", "102400", "512000"})
+	public long sizeKb;
+
+	private byte[] payload;
+	private Map<String, String> parameters;
+	private HRMD_to_ReceiverDetermination mapping;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		RouterBenchmarks.configure(engine);
+		payload = RouterBenchmarks.payload(sizeKb);
+		parameters = RouterBenchmarks.parameters();
+		mapping = new HRMD_to_ReceiverDetermination(
+				new SimulatedLookupConnector(0, 0, 0, RouterBenchmarks.COMPANY_CODES));
+	}
+
+	@Benchmark
+	public byte[] transform() throws Exception {
+		LocalMessage message = new LocalMessage(payload, RouterBenchmarks.ICO_KEY, "benchmark", parameters);
+		mapping.transform(message.getInput(), message.getOutput());
+		return message.getOutputBytes();
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.sap.aii.mapping.api;
+
+/**
+ * Compile-time stub of SAP PO mapping trace. Real class is provided by SAP PO runtime.
+ */
+public abstract class AbstractTrace {
+
+	public abstract void addInfo(String message);
+
+	public abstract void addWarning(String message);
+
+	public abstract void addWarning(String message, Throwable t);
+
+	public abstract void addDebugMessage(String message);
+
+	public abstract void addDebugMessage(String message, Throwable t);
+
+}
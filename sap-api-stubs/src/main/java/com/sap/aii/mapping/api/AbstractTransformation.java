@@ -0,0 +1,17 @@
+package com.sap.aii.mapping.api;
+
+/**
+ * Compile-time stub of SAP PO Java mapping base class. Real class is provided by SAP PO runtime.
+ *
+ * Like the real class outside of SAP PO runtime, stub has no trace: {@link #getTrace()} returns {@code null}.
+ */
+public abstract class AbstractTransformation {
+
+	public abstract void transform(TransformationInput in, TransformationOutput out)
+			throws StreamTransformationException;
+
+	public AbstractTrace getTrace() {
+		return null;
+	}
+
+}
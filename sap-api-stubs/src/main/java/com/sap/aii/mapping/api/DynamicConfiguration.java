@@ -0,0 +1,18 @@
+package com.sap.aii.mapping.api;
+
+import java.util.Iterator;
+
+/**
+ * Compile-time stub of SAP PO Dynamic Configuration of a message. Real class is provided by SAP PO runtime.
+ */
+public abstract class DynamicConfiguration {
+
+	public abstract String put(DynamicConfigurationKey key, String value);
+
+	public abstract String get(DynamicConfigurationKey key);
+
+	public abstract Iterator<DynamicConfigurationKey> getKeys();
+
+	public abstract String removeKey(DynamicConfigurationKey key);
+
+}
@@ -0,0 +1,48 @@
+package com.sap.aii.mapping.api;
+
+import java.util.Objects;
+
+/**
+ * Compile-time stub of SAP PO Dynamic Configuration key. Real class is provided by SAP PO runtime.
+ */
+public final class DynamicConfigurationKey {
+
+	private final String namespace;
+	private final String name;
+
+	private DynamicConfigurationKey(String namespace, String name) {
+		this.namespace = namespace;
+		this.name = name;
+	}
+
+	public static DynamicConfigurationKey create(String namespace, String name) {
+		return new DynamicConfigurationKey(namespace, name);
+	}
+
+	public String getNamespace() {
+		return namespace;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof DynamicConfigurationKey)) return false;
+		DynamicConfigurationKey other = (DynamicConfigurationKey) o;
+		return namespace.equals(other.namespace) && name.equals(other.name);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(namespace, name);
+	}
+
+	@Override
+	public String toString() {
+		return "{" + namespace + "}" + name;
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.sap.aii.mapping.api;
+
+/**
+ * Compile-time stub of SAP PO message header. Real class is provided by SAP PO runtime.
+ */
+public abstract class InputHeader {
+
+	public abstract String getMessageId();
+
+	public abstract String getSenderService();
+
+	public abstract String getInterface();
+
+	public abstract String getInterfaceNamespace();
+
+	public String getReceiverService() {
+		return null;
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.sap.aii.mapping.api;
+
+import com.sap.aii.mapping.lookup.Channel;
+
+/**
+ * Compile-time stub of SAP PO Operation Mapping parameters. Real class is provided by SAP PO runtime.
+ */
+public abstract class InputParameters {
+
+	public abstract String getString(String name) throws UndefinedParameterException;
+
+	public abstract Object getValue(String name) throws UndefinedParameterException;
+
+	public abstract int getInt(String name) throws UndefinedParameterException;
+
+	public abstract Channel getChannel(String name) throws UndefinedParameterException;
+
+}
@@ -0,0 +1,12 @@
+package com.sap.aii.mapping.api;
+
+import java.io.InputStream;
+
+/**
+ * Compile-time stub of SAP PO incoming payload. Real class is provided by SAP PO runtime.
+ */
+public abstract class InputPayload {
+
+	public abstract InputStream getInputStream();
+
+}
@@ -0,0 +1,12 @@
+package com.sap.aii.mapping.api;
+
+import java.io.OutputStream;
+
+/**
+ * Compile-time stub of SAP PO outgoing payload. Real class is provided by SAP PO runtime.
+ */
+public abstract class OutputPayload {
+
+	public abstract OutputStream getOutputStream();
+
+}
@@ -0,0 +1,16 @@
+package com.sap.aii.mapping.api;
+
+/**
+ * Compile-time stub of SAP PO mapping exception. Real class is provided by SAP PO runtime.
+ */
+public class StreamTransformationException extends Exception {
+
+	public StreamTransformationException(String message) {
+		super(message);
+	}
+
+	public StreamTransformationException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
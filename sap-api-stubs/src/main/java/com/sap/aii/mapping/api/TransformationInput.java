@@ -0,0 +1,16 @@
+package com.sap.aii.mapping.api;
+
+/**
+ * Compile-time stub of SAP PO mapping input. Real class is provided by SAP PO runtime.
+ */
+public abstract class TransformationInput {
+
+	public abstract InputPayload getInputPayload();
+
+	public abstract InputParameters getInputParameters();
+
+	public abstract InputHeader getInputHeader();
+
+	public abstract DynamicConfiguration getDynamicConfiguration();
+
+}
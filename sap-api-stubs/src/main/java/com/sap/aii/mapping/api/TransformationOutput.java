@@ -0,0 +1,10 @@
+package com.sap.aii.mapping.api;
+
+/**
+ * Compile-time stub of SAP PO mapping output. Real class is provided by SAP PO runtime.
+ */
+public abstract class TransformationOutput {
+
+	public abstract OutputPayload getOutputPayload();
+
+}
@@ -0,0 +1,13 @@
+package com.sap.aii.mapping.api;
+
+/**
+ * Compile-time stub of SAP PO exception of missing Operation Mapping parameter.
+ * Real class is provided by SAP PO runtime.
+ */
+public class UndefinedParameterException extends Exception {
+
+	public UndefinedParameterException(String message) {
+		super(message);
+	}
+
+}
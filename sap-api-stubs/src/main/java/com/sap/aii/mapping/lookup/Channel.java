@@ -0,0 +1,7 @@
+package com.sap.aii.mapping.lookup;
+
+/**
+ * Compile-time stub of SAP PO Communication Channel. Real interface is provided by SAP PO runtime.
+ */
+public interface Channel {
+}
@@ -0,0 +1,14 @@
+package com.sap.aii.mapping.lookup;
+
+import com.sap.aii.mapping.api.StreamTransformationException;
+
+/**
+ * Compile-time stub of SAP PO lookup exception. Real class is provided by SAP PO runtime.
+ */
+public class LookupException extends StreamTransformationException {
+
+	public LookupException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.sap.aii.mapping.lookup;
+
+import java.io.InputStream;
+
+/**
+ * Compile-time stub of SAP PO lookup API. Real class is provided by SAP PO runtime.
+ *
+ * Lookups are not possible outside of SAP PO runtime, so {@link #getChannel(String, String)} and
+ * {@link #getSystemAccessor(Channel)} always fail. Use another <code>LookupConnector</code> in tests.
+ */
+public final class LookupService {
+
+	private LookupService() {
+	}
+
+	public static XmlPayload getXmlPayload(InputStream is) {
+		return () -> is;
+	}
+
+	public static Channel getChannel(String service, String channel) throws LookupException {
+		throw new LookupException("Lookup API is not available outside of SAP PO runtime");
+	}
+
+	public static SystemAccessor getSystemAccessor(Channel channel) throws LookupException {
+		throw new LookupException("Lookup API is not available outside of SAP PO runtime");
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.sap.aii.mapping.lookup;
+
+import java.io.InputStream;
+
+/**
+ * Compile-time stub of SAP PO lookup payload. Real interface is provided by SAP PO runtime.
+ */
+public interface Payload {
+
+	InputStream getContent();
+
+}
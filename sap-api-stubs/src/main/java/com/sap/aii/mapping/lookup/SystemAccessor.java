@@ -0,0 +1,12 @@
+package com.sap.aii.mapping.lookup;
+
+/**
+ * Compile-time stub of SAP PO lookup accessor. Real interface is provided by SAP PO runtime.
+ */
+public interface SystemAccessor {
+
+	Payload call(Payload payload) throws LookupException;
+
+	void close();
+
+}
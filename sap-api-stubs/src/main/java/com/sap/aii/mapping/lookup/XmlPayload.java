@@ -0,0 +1,7 @@
+package com.sap.aii.mapping.lookup;
+
+/**
+ * Compile-time stub of SAP PO XML lookup payload. Real interface is provided by SAP PO runtime.
+ */
+public interface XmlPayload extends Payload {
+}
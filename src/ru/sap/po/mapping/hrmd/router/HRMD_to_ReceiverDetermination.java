@@ -1,7 +1,27 @@
 package ru.sap.po.mapping.hrmd.router;
 
 import org.xml.sax.SAXException;
-import ru.sap.po.mapping.hrmd.router.config.RouterPropertiesHandler;
+import ru.sap.po.mapping.hrmd.router.config.InfoTypeSet;
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoReceiversCache;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoReceiversSnapshot;
+import ru.sap.po.mapping.hrmd.router.lookup.LookupConnector;
+import ru.sap.po.mapping.hrmd.router.lookup.SapLookupConnector;
+import ru.sap.po.mapping.hrmd.router.metrics.FlightRecord;
+import ru.sap.po.mapping.hrmd.router.metrics.FlightRecorder;
+import ru.sap.po.mapping.hrmd.router.metrics.RouterMetrics;
+import ru.sap.po.mapping.hrmd.router.parser.BackgroundScan;
+import ru.sap.po.mapping.hrmd.router.parser.HrmdByteScanner;
+import ru.sap.po.mapping.hrmd.router.parser.HrmdStaxScanner;
+import ru.sap.po.mapping.hrmd.router.parser.IdocScanResult;
+import ru.sap.po.mapping.hrmd.router.parser.ParallelIdocScanner;
+import ru.sap.po.mapping.hrmd.router.parser.UnsupportedIdocException;
+import ru.sap.po.mapping.hrmd.router.routing.DecisionTable;
+import ru.sap.po.mapping.hrmd.router.routing.DynamicConfigurationCodec;
+import ru.sap.po.mapping.hrmd.router.routing.RoutingResult;
+import ru.sap.po.mapping.hrmd.router.routing.RoutingResultCache;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -10,11 +30,12 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import com.sap.aii.mapping.api.*;
-import com.sap.aii.mapping.lookup.*;
+import com.sap.aii.mapping.lookup.LookupException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -30,78 +51,156 @@ public class HRMD_to_ReceiverDetermination extends AbstractTransformation {
 	private final String lastSapDayOnEarth = "99991231";
 
 	/**
-	 * Constant represents the namespace of Dynamic Configuration key.
-	 * DC is used to store 'BUKRS'-'ReceiverSystem' pairs.
+	 * Pre-encoded fixed fragments of SAP BASIS type {@code ReceiverDetermination} message.
 	 */
-	private final String dcKeyNamespace = "urn:ru:SAP:CustomNamespace:10";
+	private static final byte[] RECEIVERS_XML_START = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<ns1:Receivers xmlns:ns1=\"http://sap.com/xi/XI/System\">").getBytes(StandardCharsets.UTF_8);
+	private static final byte[] RECEIVERS_XML_END = "</ns1:Receivers>".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] RECEIVER_START = "<Receiver><Service>".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] RECEIVER_END = "</Service></Receiver>".getBytes(StandardCharsets.UTF_8);
 
 	/**
-	 * Variable that keep Communication Component parameter name of SAP PO itself in Integration Directory
-	 *
-	 * Change its value after transfer SAP PO configuration objects through your system landscape
-	 * to appropriate Communication Component name in "router.properties" file.
+	 * JAXP factory lookup is expensive, so factory is created once. Factory is not thread-safe,
+	 * so builders are created under its lock.
 	 */
-	private String LOOKUP_SERVICE;
+	private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
 
-	/**
-	 * Variable that keep Communication Channel parameter name of configured SOAP CC that
-	 * contacts internal <tt>IntegratedConfiguration750In</tt> SOAP interface.
-	 *
-	 *
-	 * Change its value after transfer SAP PO configuration objects through your system landscape
-	 * to appropriate Communication Channel name in "router.properties" file.
-	 */
-	private String LOOKUP_CHANNEL;
+	static {
+		// Persistent snapshot of ICo lookup pairs is loaded before the first lookup, see "lookup.snapshot.file"
+		IcoReceiversSnapshot.getInstance();
+
+		// Optional warm-up of configuration, parsers and routing path, see "warmup.enabled"
+		RouterWarmUp.startIfEnabled();
+	}
 
 	/**
-	 * List of <tt>HRMD_A09</tt> organizational management infotypes.
-	 *
-	 * Can be modified in "router.properties" file
+	 * Connector that performs <tt>IntegratedConfiguration750In</tt> lookup calls.
 	 */
-	private List<String> MANAGEMENT_INFOTYPES;
+	private final LookupConnector lookupConnector;
 
 	/**
-	 * Map of BUKRS and SystemID correspondences.
+	 * Constructor used by SAP PO runtime - lookups are performed with SAP PO lookup API.
 	 */
-	private Map<String, String> receivers = null;
+	public HRMD_to_ReceiverDetermination() {
+		this(new SapLookupConnector());
+	}
 
 	/**
-	 * A variable indicates that message should be routed to all
-	 * possible receiver systems or not.
+	 * Constructor that allows to run mapping program outside of SAP PO runtime.
+	 *
+	 * @param lookupConnector {@link LookupConnector} to perform ICo lookup calls with
 	 */
-	private boolean routeToAll = false;
+	public HRMD_to_ReceiverDetermination(LookupConnector lookupConnector) {
+		this.lookupConnector = lookupConnector;
+	}
 
 	@Override
 	public void transform (TransformationInput ti, TransformationOutput to)
 			throws StreamTransformationException {
 
-		getTrace().addInfo("HRMD_A to ReceiverDetermination mapping program started!");
+		// Mapping configuration snapshot, shared by all messages
+		RouterConfiguration configuration = RouterConfiguration.getCurrent();
+
+		// Slow messages are kept by flight recorder with durations of their phases
+		FlightRecord record = FlightRecorder.getInstance().start(ti.getInputHeader().getMessageId(), configuration);
+
+		// Trace messages are filtered by configured level before they are built
+		RouterTrace trace = new RouterTrace(getTrace(), configuration.getTraceLevel(), configuration.isTraceAggregated(),
+				record);
 
-		// Try to load mapping properties from file - if it fails, we'll stop the whole transformation
-		if(!loadProperties()) return;
+		trace.info("HRMD_A to ReceiverDetermination mapping program started!");
+		RouterMetrics.getInstance().message();
 
-		// Parse incoming message to DOM <code>Document</code>
-		Document source = getDocumentFromTransformationInput(ti);
+		try {
+			determineReceivers(ti, to, configuration, trace);
+		} finally {
+			if (FlightRecorder.getInstance().finish(record, configuration)) {
+				trace.info(() -> "Slow message is recorded: " + record);
+			}
+		}
+	}
 
-		// If parsing failed - there's nothing to process, so we'll stop the whole transformation
-		if (source == null) return;
+	/**
+	 * Method performs the whole receiver determination of current message.
+	 *
+	 * @param ti {@link TransformationInput} of current message
+	 * @param to {@link TransformationOutput} of current message
+	 * @param configuration {@link RouterConfiguration} snapshot
+	 * @param trace {@link RouterTrace} of current message
+	 * @throws StreamTransformationException if SOAP lookup fails at any point
+	 */
+	private void determineReceivers(TransformationInput ti, TransformationOutput to, RouterConfiguration configuration,
+									RouterTrace trace) throws StreamTransformationException {
+
+		// Check mapping properties loaded from file - if it fails, we'll stop the whole transformation
+		RouterTrace.Phase propertiesPhase = trace.phase("properties");
+		boolean propertiesLoaded;
+		try {
+			propertiesLoaded = loadProperties(configuration, trace);
+		} finally {
+			propertiesPhase.end();
+		}
+		if (!propertiesLoaded) return;
+
+		// All state of current message is kept in its own context, so instance can be shared between threads
+		MessageContext ctx = new MessageContext(ti, configuration, trace);
+		// Company codes unknown to routing table are resolved by one resolver of current message
+		InputParameters ip = ti.getInputParameters();
+		ctx.setParametersResolver(code -> getReceiverFromInputParameters(code, ip, trace));
+		String parserEngine = configuration.getParserEngine();
+
+		// Byte-level and DOM processing implement only default routing rules
+		if (!configuration.getDecisionTable().isDefault() && !"stax".equalsIgnoreCase(parserEngine)) {
+			trace.debug("Custom routing rules are declared, using 'stax' parser engine instead of '" + parserEngine + "'");
+			parserEngine = "stax";
+		}
 
-		// Try to collect receivers Map from incoming IDOC message and InputParameters
-		getReceiversFromDocument(source, ti.getInputParameters());
+		// ICo lookup doesn't depend on payload, so with prefetch it's performed as soon as the first management
+		// infotype is found or, for interfaces listed in "lookup.prefetch.interfaces", before parsing.
+		// Lookup is always performed in mapping thread, 'stax' engine scans message in background meanwhile.
+		if (configuration.isLookupPrefetchEnabled()) {
+			ctx.setRouteToAllListener(() -> prefetchLookup(ctx));
+			if (isLookupPrefetchInterface(ctx) && !"stax".equalsIgnoreCase(parserEngine)) prefetchLookup(ctx);
+		}
 
-		// Check if we've got company codes and if yes - put them to Dynamic Configuration
-		if (!receivers.isEmpty()) addReceiversToDynamicConfiguration(ti.getDynamicConfiguration());
+		if ("bytes".equalsIgnoreCase(parserEngine)) {
+			// Byte-level fast path falls back to DOM processing, if it can't handle incoming message
+			if (!getReceiversFromBytes(ctx)) return;
+		} else if ("dom".equalsIgnoreCase(parserEngine)) {
+			// Parse incoming message to DOM <code>Document</code>
+			Document source = getDocumentFromTransformationInput(ti, trace);
+
+			// If parsing failed - there's nothing to process, so we'll stop the whole transformation
+			if (source == null) return;
+
+			// Try to collect receivers Map from incoming IDOC message and InputParameters
+			getReceiversFromDocument(source, ctx);
+		} else {
+			// Read incoming message in a single streaming pass - stop the whole transformation if it fails
+			if (!getReceiversFromStream(ctx)) return;
+		}
 
 		// If at least one management infotype is found - lookup for all possible receivers
-		if (routeToAll) lookupAllPossibleReceiversOfScenario(ti);
+		Map<String, String> scenarioReceivers = ctx.isRouteToAll() ? lookupAllPossibleReceiversOfScenario(ctx) : null;
+
+		// Receivers, Dynamic Configuration and output of the same routing features are built only once
+		RoutingResult result = getRoutingResult(ctx, scenarioReceivers);
+		Map<String, String> receivers = result.getReceivers();
+
+		// Check if we've got company codes and if yes - put them to Dynamic Configuration
+		if (!result.getDynamicConfiguration().isEmpty())
+			addReceiversToDynamicConfiguration(ti.getDynamicConfiguration(), result.getDynamicConfiguration(), trace);
+
+		RouterMetrics.getInstance().receivers(receivers.size());
+		trace.getRecord().receivers(receivers.size());
 
 		// Check again if we have any receivers. If not - we'll stop the whole transformation
 		if (!receivers.isEmpty()) {
 			// Write xml to output stream
-			writeXMLToTransformationOutput(to, generateReceiversXML());
-			getTrace().addInfo("HRMD_A to ReceiverDetermination mapping program finished!");
+			writeReceiversXMLToTransformationOutput(to, result, trace);
+			trace.info("HRMD_A to ReceiverDetermination mapping program finished!");
 		} else {
-			getTrace().addWarning("Could not determine any receiver system!");
+			trace.warning("Could not determine any receiver system!");
 		}
 	}
 
@@ -110,68 +209,218 @@ public class HRMD_to_ReceiverDetermination extends AbstractTransformation {
 	 * collects all <code>E1PLOGI</code> elements, performs segmentation of those by
 	 * "OTYPE" characteristic. Then method collects <code>E1PITYP</code> segments
 	 * for persons and orgmanagement separately and passes them to one of special
-	 * processing methods: {@link #processPersonInfoTypes(List, InputParameters)} for persons
-	 * and {@link #processOrgManagementInfoTypes(List)} for orgmanagement.
+	 * processing methods: {@link #processPersonInfoTypes(List, MessageContext)} for persons
+	 * and {@link #processOrgManagementInfoTypes(List, MessageContext)} for orgmanagement.
 	 *
 	 * @param source   {@link Document} object instance
-	 * @param ip       {@link InputParameters} object instance
-	 */
-	private void getReceiversFromDocument(Document source, InputParameters ip) {
-
-		getTrace().addDebugMessage("Started to parse HRMD_A09 XML and collecting all receiver company codes.");
-
-		// Instantiate company codes Map
-		receivers = new HashMap<>();
-
-		// Get all <tt>E1PLOGI</tt> segments from the whole DOM tree
-		NodeList segmentNodes = source.getElementsByTagName("E1PLOGI");
-
-		// Collect all <tt>E1PLOGI</tt> nodes into HashMap<Boolean, List<Node>> with 2 entries:
-		// true: List<Node> - entry with List of all E1PLOGI nodes that have OTYPE=="P", e.g. all person segments
-		// false: List<Node> - entry with List of all E1PLOGI nodes that have any other OTYPE
-		Map<Boolean, List<Node>> segmentsMap = IntStream.range(0, segmentNodes.getLength())
-				.mapToObj(segmentNodes::item)
-				.collect(Collectors.toList())
-				.stream()
-				.collect(Collectors.partitioningBy(node -> {
-					if (node.getNodeType() != Node.ELEMENT_NODE) return false;
-					Element segment = (Element) node;
-					String oType = Optional.ofNullable(segment.getElementsByTagName("OTYPE"))
-							.map(chldrn -> chldrn.item(0))
-							.map(Node::getTextContent)
-							.orElse("");
-					return "P".equals(oType);
-				}));
-
-		// Iterate over collected Map to collect (again) all <tt>E1PITYP</tt> Elements and process them separately
-		segmentsMap.forEach((isPersons, segments) -> {
-			if (segments.isEmpty()) return;
-
-			List<Element> infoTypesToProcess = new ArrayList<>();
-
-			// Collect all <tt>E1PITYP</tt> Elements from each <tt>E1PLOGI</tt> node
-			segments.forEach(E1PLOGI -> {
-				if (E1PLOGI.getNodeType() != Node.ELEMENT_NODE) return;
-				Element segment = (Element) E1PLOGI;
-				NodeList infoTypes = segment.getElementsByTagName("E1PITYP");
-				IntStream.range(0, infoTypes.getLength())
-						.mapToObj(infoTypes::item)
-						.collect(Collectors.toList())
-						.forEach(E1PITYP -> {
-							if (E1PITYP.getNodeType() != Node.ELEMENT_NODE) return;
-							Element infoType = (Element) E1PITYP;
-							infoTypesToProcess.add(infoType);
-						});
+	 * @param ctx      {@link MessageContext} of current message
+	 */
+	void getReceiversFromDocument(Document source, MessageContext ctx) {
+
+		RouterTrace trace = ctx.getTrace();
+		trace.debug("Started to parse HRMD_A09 XML and collecting all receiver company codes.");
+		RouterTrace.Phase phase = trace.phase("scan");
+
+		try {
+			// Get all <tt>E1PLOGI</tt> segments from the whole DOM tree
+			NodeList segmentNodes = source.getElementsByTagName("E1PLOGI");
+
+			// Collect all <tt>E1PLOGI</tt> nodes into HashMap<Boolean, List<Node>> with 2 entries:
+			// true: List<Node> - entry with List of all E1PLOGI nodes that have OTYPE=="P", e.g. all person segments
+			// false: List<Node> - entry with List of all E1PLOGI nodes that have any other OTYPE
+			Map<Boolean, List<Node>> segmentsMap = IntStream.range(0, segmentNodes.getLength())
+					.mapToObj(segmentNodes::item)
+					.collect(Collectors.toList())
+					.stream()
+					.collect(Collectors.partitioningBy(node -> {
+						if (node.getNodeType() != Node.ELEMENT_NODE) return false;
+						Element segment = (Element) node;
+						String oType = Optional.ofNullable(segment.getElementsByTagName("OTYPE"))
+								.map(chldrn -> chldrn.item(0))
+								.map(Node::getTextContent)
+								.orElse("");
+						return "P".equals(oType);
+					}));
+
+			// Iterate over collected Map to collect (again) all <tt>E1PITYP</tt> Elements and process them separately
+			segmentsMap.forEach((isPersons, segments) -> {
+				if (segments.isEmpty()) return;
+
+				List<Element> infoTypesToProcess = new ArrayList<>();
+
+				// Collect all <tt>E1PITYP</tt> Elements from each <tt>E1PLOGI</tt> node
+				segments.forEach(E1PLOGI -> {
+					if (E1PLOGI.getNodeType() != Node.ELEMENT_NODE) return;
+					Element segment = (Element) E1PLOGI;
+					NodeList infoTypes = segment.getElementsByTagName("E1PITYP");
+					IntStream.range(0, infoTypes.getLength())
+							.mapToObj(infoTypes::item)
+							.collect(Collectors.toList())
+							.forEach(E1PITYP -> {
+								if (E1PITYP.getNodeType() != Node.ELEMENT_NODE) return;
+								Element infoType = (Element) E1PITYP;
+								infoTypesToProcess.add(infoType);
+							});
+				});
+
+				if (isPersons) {
+					processPersonInfoTypes(infoTypesToProcess, ctx);
+				} else {
+					processOrgManagementInfoTypes(infoTypesToProcess, ctx);
+				}
 			});
 
-			if (isPersons) {
-				processPersonInfoTypes(infoTypesToProcess, ip);
+			phase.add("objects", segmentNodes.getLength());
+			RouterMetrics.getInstance().objectsScanned(segmentNodes.getLength());
+			trace.getRecord().objects(segmentNodes.getLength());
+			phase.add("receivers", ctx.getReceivers().size());
+		} finally {
+			phase.end();
+		}
+		trace.debug(() -> "Finished parsing of HRMD_A09 XML. Collected " + ctx.getReceivers().size() + " receiver(s).");
+	}
+
+	/**
+	 * Method reads incoming IDOC message from {@link TransformationInput} in a single pass with
+	 * {@link HrmdStaxScanner}, without building DOM tree, and collects found company codes.
+	 * Result is the same as of
+	 * {@link #getReceiversFromDocument(Document, MessageContext)}.
+	 *
+	 * @param ctx {@link MessageContext} of current message
+	 *
+	 * @return boolean indicator of operation success
+	 */
+	private boolean getReceiversFromStream(MessageContext ctx) {
+
+		RouterTrace trace = ctx.getTrace();
+		trace.debug("Started to stream HRMD_A09 XML and collecting all receiver company codes.");
+		RouterTrace.Phase phase = trace.phase("scan");
+
+		IdocScanResult scanResult;
+		try (InputStream is = trace.getRecord().countPayload(ctx.getInput().getInputPayload().getInputStream())) {
+			RouterConfiguration configuration = ctx.getConfiguration();
+			BackgroundScan.Task task;
+			if (configuration.getParallelThresholdBytes() > 0) {
+				// Very large messages are split at object boundaries and scanned in parallel
+				ParallelIdocScanner scanner = new ParallelIdocScanner(configuration.getDecisionTable(), DecisionTable.today(),
+						configuration.getParallelThresholdBytes(), configuration.getParallelMaxBytes(),
+						configuration.getParallelThreads());
+				task = listener -> {
+					scanner.setRouteToAllListener(listener);
+					return scanner.scan(is);
+				};
 			} else {
-				processOrgManagementInfoTypes(infoTypesToProcess);
+				HrmdStaxScanner scanner = new HrmdStaxScanner(configuration.getDecisionTable(), DecisionTable.today());
+				task = listener -> {
+					scanner.setRouteToAllListener(listener);
+					return scanner.scan(is);
+				};
 			}
-		});
+			scanResult = configuration.isLookupPrefetchEnabled()
+					? scanWhileLookup(task, ctx)
+					: task.scan(ctx.getRouteToAllListener());
 
-		getTrace().addDebugMessage("Finished parsing of HRMD_A09 XML. Collected " + receivers.size() + " receiver(s).");
+			applyScanResult(scanResult, ctx);
+			phase.add("companyCodes", scanResult.getCompanyCodes().size());
+		} catch (IOException ioe) {
+			trace.warning("Encountered IOException during incoming message parsing ", ioe);
+			return false;
+		} catch (XMLStreamException xse) {
+			trace.warning("Encountered XMLStreamException during incoming message parsing ", xse);
+			return false;
+		} finally {
+			phase.end();
+		}
+		trace.debug(() -> "Finished streaming of HRMD_A09 XML. Collected " + scanResult.getCompanyCodes().size()
+				+ " company code(s).");
+		return true;
+	}
+
+	/**
+	 * Method reads raw bytes of incoming IDOC message from {@link TransformationInput} with
+	 * {@link HrmdByteScanner} and collects found company codes.
+	 * If message can't be handled at byte level, input stream is rewound and message is processed
+	 * with {@link #getReceiversFromDocument(Document, MessageContext)}. Runtime stream, that doesn't
+	 * support marks, is buffered for this up to "parser.bytes.mark.limit.bytes".
+	 *
+	 * @param ctx {@link MessageContext} of current message
+	 *
+	 * @return boolean indicator of operation success
+	 * @throws StreamTransformationException if message can't be handled at byte level and input stream
+	 * can't be rewound to process it with DOM
+	 */
+	private boolean getReceiversFromBytes(MessageContext ctx) throws StreamTransformationException {
+
+		RouterTrace trace = ctx.getTrace();
+		trace.debug("Started to scan HRMD_A09 bytes and collecting all receiver company codes.");
+
+		InputStream payload = trace.getRecord().countPayload(ctx.getInput().getInputPayload().getInputStream());
+		int markLimit = Integer.MAX_VALUE;
+		if (!payload.markSupported()) {
+			markLimit = (int) Math.max(0, Math.min(Integer.MAX_VALUE, ctx.getConfiguration().getBytesMarkLimit()));
+			payload = new BufferedInputStream(payload);
+		}
+
+		RouterTrace.Phase phase = trace.phase("scan");
+
+		IdocScanResult scanResult;
+		try (InputStream is = payload) {
+			is.mark(markLimit);
+			HrmdByteScanner scanner = new HrmdByteScanner(ctx.getConfiguration().getManagementInfoTypes());
+			scanner.setRouteToAllListener(ctx.getRouteToAllListener());
+			try {
+				scanResult = scanner.scan(is);
+			} catch (UnsupportedIdocException uie) {
+				trace.debug(() -> "Byte-level scanner can't process incoming message, falling back to DOM: "
+						+ uie.getMessage());
+				phase.count("fallbacks");
+				phase.end();
+				try {
+					is.reset();
+				} catch (IOException ioe) {
+					throw new StreamTransformationException("Byte-level scanner can't process incoming message ("
+							+ uie.getMessage() + ") and input stream can't be rewound to parse it to DOM, "
+							+ "increase 'parser.bytes.mark.limit.bytes' or use 'stax' parser engine", ioe);
+				}
+
+				Document source = parseDocument(is, trace);
+				if (source == null) return false;
+				getReceiversFromDocument(source, ctx);
+				return true;
+			}
+
+			applyScanResult(scanResult, ctx);
+			phase.add("companyCodes", scanResult.getCompanyCodes().size());
+		} catch (IOException ioe) {
+			trace.warning("Encountered IOException during incoming message scanning ", ioe);
+			return false;
+		} finally {
+			phase.end();
+		}
+		trace.debug(() -> "Finished scanning of HRMD_A09 bytes. Collected " + scanResult.getCompanyCodes().size()
+				+ " company code(s).");
+		return true;
+	}
+
+	/**
+	 * Method keeps company codes found by one of scanners, so their receivers are collected
+	 * by {@link #getRoutingResult(MessageContext, Map)}, and sets route to all indicator of current message.
+	 *
+	 * @param scanResult {@link IdocScanResult} of incoming message
+	 * @param ctx {@link MessageContext} of current message
+	 */
+	private void applyScanResult(IdocScanResult scanResult, MessageContext ctx) {
+		RouterMetrics.getInstance().objectsScanned(scanResult.getObjectCount());
+		RouterMetrics.getInstance().segmentHits(scanResult.getSegmentHits());
+		ctx.getTrace().getRecord().objects(scanResult.getObjectCount());
+		ctx.getTrace().getRecord().segmentHits(scanResult.getSegmentHits());
+		ctx.setCompanyCodes(scanResult.getCompanyCodes());
+
+		if (scanResult.isRouteToAll() && !ctx.isRouteToAll()) {
+			ctx.getTrace().info(() -> "Found one of " + Arrays.toString(ctx.getConfiguration().getManagementInfoTypes().toArray())
+					+ " segment, so IDOC must be routed to all possible receivers, configured in ICo.");
+			ctx.setRouteToAll();
+		}
 	}
 
 	/**
@@ -182,9 +431,9 @@ public class HRMD_to_ReceiverDetermination extends AbstractTransformation {
 	 *
 	 * @param infoTypes {@link List} of collected previously infotypes
 	 *                           that have "OTYPE" == "P"
-	 * @param ip {@link InputParameters} routing table from ICo and OM configuration
+	 * @param ctx {@link MessageContext} of current message
 	 */
-	private void processPersonInfoTypes(List<Element> infoTypes, InputParameters ip) {
+	private void processPersonInfoTypes(List<Element> infoTypes, MessageContext ctx) {
 		infoTypes.forEach(infoType -> {
 			// Try to get <tt>INFTY</tt> string for segment
 			String infoTypeCode = getTextContentFromElementTag(infoType, "INFTY");
@@ -208,105 +457,310 @@ public class HRMD_to_ReceiverDetermination extends AbstractTransformation {
 					if(!lastSapDayOnEarth.equals(endDate)) return;
 
 					String companyCode = getTextContentFromElementTag(timeDependentSegment, "BUKRS");
-					if (!isNullOrEmpty(companyCode)) {
-						try {
-							String systemId = ip.getString("R" + companyCode);
-							if (systemId != null && !receivers.containsKey(companyCode)) {
-								receivers.put(companyCode, systemId);
-								getTrace().addDebugMessage("Added BUKRS: '" + companyCode +
-										"' and SystemID: '" + systemId + "' to result receivers map.");
-							}
-						} catch (UndefinedParameterException upe) {
-							getTrace().addWarning("Encountered UndefinedParameterException while tried to get input parameter " + upe);
-						}
-					}
+					if (isNullOrEmpty(companyCode)) return;
+					RouterMetrics.getInstance().segmentHits(1);
+					ctx.getTrace().getRecord().segmentHits(1);
+					addReceiverOfCompanyCode(companyCode, ctx);
 				});
 			}
 		});
 	}
 
+	/**
+	 * Method gets receiver system of given company code from compiled routing table
+	 * and puts it to receivers map of current message, if it's not there yet. Company codes
+	 * unknown to routing table are resolved from Operation Mapping parameters.
+	 *
+	 * @param companyCode company code value from <code>BUKRS</code> element
+	 * @param ctx {@link MessageContext} of current message
+	 */
+	private void addReceiverOfCompanyCode(String companyCode, MessageContext ctx) {
+		Map<String, String> receivers = ctx.getReceivers();
+		if (receivers.containsKey(companyCode)) return;
+
+		RouterTrace trace = ctx.getTrace();
+		String systemId = ctx.getRoutingTable().get(companyCode, ctx.getParametersResolver());
+		if (systemId != null) {
+			receivers.put(companyCode, systemId);
+			trace.detail(() -> "Added BUKRS: '" + companyCode +
+					"' and SystemID: '" + systemId + "' to result receivers map.");
+		}
+	}
+
+	/**
+	 * Method gets receiver system of given company code from Operation Mapping parameters.
+	 *
+	 * @param companyCode company code value from <code>BUKRS</code> element
+	 * @param ip {@link InputParameters} routing table from ICo and OM configuration
+	 * @param trace {@link RouterTrace} of current message
+	 *
+	 * @return receiver system or {@code null}, if there's no parameter for company code
+	 */
+	private String getReceiverFromInputParameters(String companyCode, InputParameters ip, RouterTrace trace) {
+		try {
+			return ip.getString("R" + companyCode);
+		} catch (UndefinedParameterException upe) {
+			trace.warning("Encountered UndefinedParameterException while tried to get input parameter " + upe);
+			return null;
+		}
+	}
+
 	/**
 	 * Method checks if incoming message has organizational management infotypes.
-	 * If AT LEAST ONE of that records is found - set {@code true} to {@link #routeToAll}
-	 * variable. This mean that we need to route incoming message to ALL possible
+	 * If AT LEAST ONE of that records is found - set route to all indicator
+	 * of current message. This mean that we need to route incoming message to ALL possible
 	 * receivers.
 	 *
 	 * @param infoTypes {@link List} of collected previously infotypes
 	 *                              that have "OTYPE" != "P"
+	 * @param ctx {@link MessageContext} of current message
 	 */
-	private void processOrgManagementInfoTypes(List<Element> infoTypes) {
+	private void processOrgManagementInfoTypes(List<Element> infoTypes, MessageContext ctx) {
+		InfoTypeSet managementInfoTypes = ctx.getConfiguration().getManagementInfoTypes();
 		infoTypes.forEach(infoType -> {
 			// Try to get <tt>INFTY</tt> string for segment
 			String infoTypeCode = getTextContentFromElementTag(infoType, "INFTY");
 
 			// Perform check fo management infotypes
-			if (!routeToAll && MANAGEMENT_INFOTYPES.contains(infoTypeCode)) {
-				getTrace().addInfo("Found one of " + Arrays.toString(MANAGEMENT_INFOTYPES.toArray()) + " segment, "
+			if (!ctx.isRouteToAll() && managementInfoTypes.contains(infoTypeCode)) {
+				ctx.getTrace().info(() -> "Found one of " + Arrays.toString(managementInfoTypes.toArray()) + " segment, "
 						+ "so IDOC must be routed to all possible receivers, configured in ICo.");
-				routeToAll = true;
+				ctx.setRouteToAll();
 			}
 		});
 	}
 
 	/**
-	 * Method that performs SOAP lookup for all possible receiver systems
-	 * in current ICo object by accessing pre-configured Communication
-	 * Channel in Integration Directory with generated XML payload.
+	 * Method collects all possible receiver systems of current ICo object. 'BUKRS'-'SystemID' pairs
+	 * are taken from process-wide {@link IcoReceiversCache} or looked up with
+	 * {@link #readMappingParametersOfScenario(IcoKey, RouterConfiguration, RouterTrace)}, if cache has no actual pairs.
+	 * If lookup was already performed while message was parsed, its result is used instead.
 	 *
-	 * @param ti {@link TransformationInput} object instance
+	 * @param ctx {@link MessageContext} of current message
+	 *
+	 * @return {@link Map} of 'BUKRS'-'SystemID' pairs of ICo or {@code null}, if lookup did not return valid answer
 	 * @throws LookupException if SOAP lookup fails at any point
 	 */
-	private void lookupAllPossibleReceiversOfScenario(TransformationInput ti) throws LookupException {
+	private Map<String, String> lookupAllPossibleReceiversOfScenario(MessageContext ctx) throws LookupException {
+
+		RouterTrace trace = ctx.getTrace();
+		trace.debug("Started to lookup for all possible receiver systems, configured in ICo.");
+		RouterTrace.Phase phase = trace.phase("lookup");
+		try {
+			RouterMetrics.getInstance().lookup();
+			// Outcome stays failed, if lookup throws exception or doesn't return valid answer
+			trace.getRecord().lookup(FlightRecord.Lookup.FAILED);
+
+			IcoKey icoKey = ctx.getIcoKey();
+			RouterConfiguration configuration = ctx.getConfiguration();
+
+			IcoReceiversCache.Result lookupResult;
+			if (ctx.isLookupDone()) {
+				phase.count("prefetched");
+				if (ctx.getLookupError() != null) throw ctx.getLookupError();
+				lookupResult = ctx.getLookupResult();
+			} else {
+				lookupResult = IcoReceiversCache.getInstance().get(icoKey,
+						() -> readMappingParametersOfScenario(icoKey, configuration, trace));
+			}
+
+			if (lookupResult == null) return null;
+			Map<String, String> mappingParameters = lookupResult.getPairs();
+
+			// If lookup failed or did not return valid answer, cache returns the last known pairs of ICo
+			if (lookupResult.isSnapshot()) {
+				RouterMetrics.getInstance().lookupSnapshotFallback();
+				trace.getRecord().lookup(FlightRecord.Lookup.SNAPSHOT);
+				trace.warning("Using receiver pairs of ICo saved at " + new Date(lookupResult.getLoadedAt())
+						+ " instead of lookup result.");
+			} else {
+				trace.getRecord().lookup(ctx.isLookupDone() ? FlightRecord.Lookup.PREFETCHED : FlightRecord.Lookup.DONE);
+			}
+
+			phase.add("icoPairs", mappingParameters.size());
+			trace.debug(() -> "Parameters lookup is finished. ICo has " + mappingParameters.size() +
+					" receiver pair(s).");
+			return mappingParameters;
+		} finally {
+			phase.end();
+		}
+	}
+
+	/**
+	 * Method builds {@link RoutingResult} of current message from receivers of found company codes
+	 * and all possible receivers of ICo object. Result of message with company codes collected by
+	 * one of scanners is taken from {@link RoutingResultCache}, if a message with the same
+	 * {@link RoutingResultCache.Signature} was processed before, otherwise it's cached for next messages.
+	 *
+	 * @param ctx {@link MessageContext} of current message
+	 * @param scenarioReceivers {@link Map} of 'BUKRS'-'SystemID' pairs of ICo or {@code null}
+	 *
+	 * @return {@link RoutingResult} of current message
+	 */
+	private RoutingResult getRoutingResult(MessageContext ctx, Map<String, String> scenarioReceivers) {
+
+		RouterTrace trace = ctx.getTrace();
+		RouterTrace.Phase phase = trace.phase("result");
+
+		try {
+			// Result depends on lookup answer, so it's not cached, if answer was not received
+			RoutingResultCache.Signature signature = null;
+			if (ctx.getCompanyCodes() != null && (!ctx.isRouteToAll() || scenarioReceivers != null)) {
+				signature = new RoutingResultCache.Signature(ctx.getIcoKey(), ctx.getConfiguration(),
+						ctx.getRoutingTable(), scenarioReceivers, ctx.getCompanyCodes());
+				RoutingResult cached = RoutingResultCache.getInstance().get(signature);
+				if (cached != null) {
+					phase.count("cacheHits");
+					RouterMetrics.getInstance().routingResultCacheHit();
+					trace.debug(() -> "Reused routing result of previous message with the same company codes. Receivers count: "
+							+ cached.getReceivers().size());
+					return cached;
+				}
+			}
+
+			if (ctx.getCompanyCodes() != null) {
+				ctx.getCompanyCodes().forEach(companyCode -> addReceiverOfCompanyCode(companyCode, ctx));
+			}
+
+			// Only receivers of found company codes are passed in Dynamic Configuration, together with
+			// route to all indicator, which is used to split the message by HRMD_to_ReceiverPayload
+			Map<String, String> receivers = ctx.getReceivers();
+			Map<String, String> dynamicConfiguration = DynamicConfigurationCodec.encode(receivers,
+					ctx.getConfiguration().getDynamicConfigurationMode(), ctx.isRouteToAll());
+
+			if (scenarioReceivers != null) {
+				scenarioReceivers.forEach((bukrs, systemId) -> {
+					if (!receivers.containsKey(bukrs)) {
+						receivers.put(bukrs, systemId);
+						phase.count("addedPairs");
+						trace.detail(() -> "Added receiver pair from lookup: '" + bukrs + "'-'" + systemId + "'");
+					}
+				});
+			}
 
-		getTrace().addDebugMessage("Started to lookup for all possible receiver systems, configured in ICo.");
+			// Output is serialized in advance only for cached result, otherwise it's streamed directly to output payload
+			boolean cached = signature != null && RoutingResultCache.getInstance().isEnabled();
+			RoutingResult result = new RoutingResult(receivers, dynamicConfiguration,
+					cached ? generateReceiversXML(receivers, trace) : null);
+			if (cached) RoutingResultCache.getInstance().put(signature, result);
 
-		// Get InputHeader from TransformationInput
-		InputHeader ih = ti.getInputHeader();
+			phase.add("receivers", receivers.size());
+			return result;
+		} finally {
+			phase.end();
+		}
+	}
 
-		// Declare XmlPayload objects
-		XmlPayload xmlRequest = null;
-		XmlPayload xmlResponse = null;
+	/**
+	 * Method performs lookup of all possible receiver systems of current ICo object before the whole message
+	 * is scanned, if it's not performed yet. Result or {@link LookupException} is kept in {@link MessageContext}
+	 * until {@link #lookupAllPossibleReceiversOfScenario(MessageContext)}, so exception fails only messages,
+	 * which are routed to all receivers.
+	 *
+	 * @param ctx {@link MessageContext} of current message
+	 */
+	private void prefetchLookup(MessageContext ctx) {
+		if (ctx.isLookupDone()) return;
+
+		IcoKey icoKey = ctx.getIcoKey();
+		RouterConfiguration configuration = ctx.getConfiguration();
+		RouterTrace trace = ctx.getTrace();
+		trace.debug("Started lookup for all possible receiver systems before the whole message is parsed.");
+		RouterTrace.Phase phase = trace.phase("prefetch");
+		try {
+			ctx.setLookupResult(IcoReceiversCache.getInstance()
+					.get(icoKey, () -> readMappingParametersOfScenario(icoKey, configuration, trace)));
+		} catch (LookupException le) {
+			ctx.setLookupError(le);
+		} finally {
+			phase.end();
+		}
+	}
+
+	/**
+	 * Method scans incoming message in background with {@link BackgroundScan} and meanwhile performs
+	 * {@link #prefetchLookup(MessageContext)} in mapping thread - before scan result is needed
+	 * for interfaces listed in "lookup.prefetch.interfaces", otherwise as soon as scanner finds
+	 * the first management infotype.
+	 *
+	 * @param task scan of incoming message
+	 * @param ctx {@link MessageContext} of current message
+	 *
+	 * @return {@link IdocScanResult} of incoming message
+	 * @throws IOException if reading from stream fails
+	 * @throws XMLStreamException if incoming message is not well-formed XML
+	 */
+	private IdocScanResult scanWhileLookup(BackgroundScan.Task task, MessageContext ctx)
+			throws IOException, XMLStreamException {
+		BackgroundScan scan = BackgroundScan.start(task, ctx.getConfiguration().getLookupPrefetchThreads());
+		try {
+			if (isLookupPrefetchInterface(ctx) || scan.awaitRouteToAll()) prefetchLookup(ctx);
+		} finally {
+			// Stream is closed by caller, so scan must end first, even if lookup failed
+			scan.await();
+		}
+		return scan.join();
+	}
+
+	/**
+	 * @param ctx {@link MessageContext} of current message
+	 *
+	 * @return {@code true}, if messages of current interface mostly contain management infotypes,
+	 * so lookup is performed before they are parsed
+	 */
+	private static boolean isLookupPrefetchInterface(MessageContext ctx) {
+		return ctx.getConfiguration().getLookupPrefetchInterfaces().contains(ctx.getIcoKey().getInterfaceName());
+	}
+
+	/**
+	 * Method that performs SOAP lookup for all possible receiver systems
+	 * in given ICo object by accessing pre-configured Communication
+	 * Channel in Integration Directory with generated XML payload.
+	 *
+	 * @param icoKey {@link IcoKey} of ICo object
+	 * @param configuration {@link RouterConfiguration} with lookup channel parameters
+	 * @param trace {@link RouterTrace} of current message
+	 *
+	 * @return {@link Map} of 'BUKRS'-'SystemID' pairs from <code>MappingParamters</code> of ICo
+	 * or {@code null}, if lookup did not return valid answer
+	 * @throws LookupException if SOAP lookup fails at any point
+	 */
+	private Map<String, String> readMappingParametersOfScenario(IcoKey icoKey, RouterConfiguration configuration,
+																RouterTrace trace) throws LookupException {
 
 		// Construct XML request body String
 		String xmlRequestBody = "<bas:IntegratedConfigurationReadRequest xmlns:bas=\"http://sap.com/xi/BASIS\">" +
 				"<IntegratedConfigurationID>" +
-				"<SenderComponentID>" + ih.getSenderService() + "</SenderComponentID>" +
-				"<InterfaceName>" + ih.getInterface() + "</InterfaceName>" +
-				"<InterfaceNamespace>" + ih.getInterfaceNamespace() + "</InterfaceNamespace>" +
+				"<SenderComponentID>" + icoKey.getSenderComponent() + "</SenderComponentID>" +
+				"<InterfaceName>" + icoKey.getInterfaceName() + "</InterfaceName>" +
+				"<InterfaceNamespace>" + icoKey.getInterfaceNamespace() + "</InterfaceNamespace>" +
 				"</IntegratedConfigurationID>" +
 				"</bas:IntegratedConfigurationReadRequest>";
 
-		// Open ByteArrayInputStream from constructed request payload string
-		try (InputStream is = new ByteArrayInputStream(xmlRequestBody.getBytes(StandardCharsets.UTF_8))) {
-			// Convert ByteArrayInputStream to SAP XmlPayload type, which is necessary to perform lookup request
-			xmlRequest = LookupService.getXmlPayload(is);
-		} catch (IOException ioe) {
-			getTrace().addWarning("Encountered error during String to XmlPayload conversion while lookup ", ioe);
-			return;
-		}
-
-		// Get lookup channel instance that provides access to ICo service
-		Channel lookupChannel = LookupService.getChannel(LOOKUP_SERVICE, LOOKUP_CHANNEL);
+		// Perform SOAP service call through configured Communication Channel
+		RouterMetrics.getInstance().lookupCall();
+		InputStream response = lookupConnector.call(configuration.getLookupService(), configuration.getLookupChannel(),
+				xmlRequestBody.getBytes(StandardCharsets.UTF_8), trace);
 
-		if (lookupChannel == null) {
-			getTrace().addWarning("Could not get Communication Channel to perform ICo lookup, terminating.");
-			return;
-		}
+		if (response == null) return null;
 
-		// Perform SOAP service call and clean up after done
-		SystemAccessor sa = LookupService.getSystemAccessor(lookupChannel);
-		xmlResponse = (XmlPayload) sa.call(xmlRequest);
-		sa.close();
+		return parseMappingParameters(response, trace);
+	}
 
-		if (xmlResponse == null) {
-			getTrace().addWarning("Lookup did not return valid answer, can not collect all possible receiver systems.");
-			return;
-		}
+	/**
+	 * Method reads 'BUKRS'-'SystemID' pairs from <code>MappingParamters</code> of
+	 * <tt>IntegratedConfigurationReadResponse</tt> and closes given stream.
+	 *
+	 * @param response {@link InputStream} of lookup response payload
+	 * @param trace {@link RouterTrace} of current message
+	 *
+	 * @return {@link Map} of 'BUKRS'-'SystemID' pairs or {@code null}, if response is not valid
+	 */
+	Map<String, String> parseMappingParameters(InputStream response, RouterTrace trace) {
+		try (InputStream is = response) {
+			Document doc = newDocumentBuilder().parse(is);
 
-		try (InputStream is = xmlResponse.getContent()) {
-			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-			DocumentBuilder db = dbf.newDocumentBuilder();
-			Document doc = db.parse(is);
+			Map<String, String> pairs = new LinkedHashMap<>();
 
 			if (doc.hasChildNodes()) {
 				// 'MappingParamters' is not my mistake, it's typo in SAP's API.
@@ -316,9 +770,9 @@ public class HRMD_to_ReceiverDetermination extends AbstractTransformation {
 						.orElse(null);
 
 				if (mappingParameters == null) {
-					getTrace().addWarning("Could not retrieve MappingParameters element, can not collect " +
+					trace.warning("Could not retrieve MappingParameters element, can not collect " +
 							"all possible receiver systems.");
-					return;
+					return null;
 				}
 
 				List<Node> mappingParametersList = IntStream.range(0, mappingParameters.getLength())
@@ -332,23 +786,22 @@ public class HRMD_to_ReceiverDetermination extends AbstractTransformation {
 						String bukrs = getTextContentFromElementTag(mappingParameter, "Name");
 						String systemId = getTextContentFromElementTag(mappingParameter, "Value");
 
-						if (!isNullOrEmpty(bukrs) && !isNullOrEmpty(systemId) && !receivers.containsKey(bukrs)) {
-							receivers.put(bukrs, systemId);
-							getTrace().addDebugMessage("Added receiver pair from lookup: '" + bukrs + "'-'" + systemId + "'");
-						}
+						if (!isNullOrEmpty(bukrs) && !isNullOrEmpty(systemId)) pairs.putIfAbsent(bukrs, systemId);
 					}
 				});
 
-				getTrace().addDebugMessage("Parameters lookup is finished. ICo lookup returned " + mappingParameters.getLength() +
+				trace.debug(() -> "ICo lookup returned " + mappingParameters.getLength() +
 						" operation mapping parameters.");
 			}
+			return pairs;
 		} catch (IOException e) {
-			getTrace().addWarning("Encountered IOException during reading lookup content ", e);
+			trace.warning("Encountered IOException during reading lookup content ", e);
 		} catch (ParserConfigurationException pce) {
-			getTrace().addWarning("Encountered ParserConfigurationException during reading lookup content ", pce);
+			trace.warning("Encountered ParserConfigurationException during reading lookup content ", pce);
 		} catch (SAXException se) {
-			getTrace().addWarning("Encountered SAXException during reading lookup content ", se);
+			trace.warning("Encountered SAXException during reading lookup content ", se);
 		}
+		return null;
 	}
 
 	/**
@@ -356,54 +809,71 @@ public class HRMD_to_ReceiverDetermination extends AbstractTransformation {
 	 * to {@link DynamicConfiguration} object for further processing.
 	 *
 	 * @param dc - DynamicConfiguration object from SAP PO runtime
+	 * @param entries - key names and values of BUKRS and SystemID correspondences,
+	 *                encoded with {@link DynamicConfigurationCodec}
+	 * @param trace - {@link RouterTrace} of current message
 	 */
-	private void addReceiversToDynamicConfiguration(DynamicConfiguration dc) {
-		receivers.forEach((bukrs, systemId) -> {
-			DynamicConfigurationKey bukrsKey =
-					DynamicConfigurationKey.create(dcKeyNamespace, "R" + bukrs);
-			dc.put(bukrsKey, systemId);
-			getTrace().addDebugMessage("Put new pair to DynamicConfiguration. Key: " + bukrs + ", value: " + systemId);
-		});
+	private void addReceiversToDynamicConfiguration(DynamicConfiguration dc, Map<String, String> entries,
+													RouterTrace trace) {
+		RouterTrace.Phase phase = trace.phase("dynamicConfiguration");
+		try {
+			entries.forEach((name, value) -> {
+				DynamicConfigurationKey key =
+						DynamicConfigurationKey.create(DynamicConfigurationCodec.NAMESPACE, name);
+				dc.put(key, value);
+				phase.count("keys");
+				trace.detail(() -> "Put new pair to DynamicConfiguration. Key: " + name + ", value: " + value);
+			});
+		} finally {
+			phase.end();
+		}
 	}
 
 	/**
-	 * Method loads mapping parameters from properties file in mapping resources.
+	 * Method checks mapping parameters loaded from properties file in mapping resources.
 	 * Will return {@code false}, if any error appear.
 	 *
+	 * @param configuration {@link RouterConfiguration} snapshot
+	 * @param trace {@link RouterTrace} of current message
+	 *
 	 * @return boolean indicator of operation success
 	 */
-	private boolean loadProperties() {
+	private boolean loadProperties(RouterConfiguration configuration, RouterTrace trace) {
 
-		// Mapping properties handler object
-		RouterPropertiesHandler propHandler = RouterPropertiesHandler.getInstance();
+		if (configuration.getLookupService() == null) {
+			trace.warning("Can't load Communication Component property from 'router.properties' file.");
+			return false;
+		} else {
+			trace.debug(() -> "Loaded Communication Component property with value: '"
+					+ configuration.getLookupService() + "' successfully");
+		}
 
-		LOOKUP_SERVICE = propHandler.getPropertyValue("lookup.sappo.component.name");
-		if (LOOKUP_SERVICE == null) {
-			getTrace().addWarning("Can't load Communication Component property from 'router.properties' file.");
+		if (configuration.getLookupChannel() == null) {
+			trace.warning("Can't load Communication Channel property from 'router.properties' file.");
 			return false;
 		} else {
-			getTrace().addDebugMessage("Loaded Communication Component property with value: '"
-					+ LOOKUP_SERVICE + "' successfully");
+			trace.debug(() -> "Loaded Communication Channel property with value: '"
+					+ configuration.getLookupChannel() + "' successfully");
 		}
 
-		LOOKUP_CHANNEL = propHandler.getPropertyValue("lookup.sappo.channel.ico.name");
-		if (LOOKUP_CHANNEL == null) {
-			getTrace().addWarning("Can't load Communication Channel property from 'router.properties' file.");
+		if (configuration.getManagementInfoTypes() == null) {
+			trace.warning("Can't load Management Infotypes property from 'router.properties' file.");
 			return false;
 		} else {
-			getTrace().addDebugMessage("Loaded Communication Channel property with value: '"
-					+ LOOKUP_CHANNEL + "' successfully");
+			trace.debug(() -> "Loaded Management Infotypes property with value: '"
+					+ Arrays.toString(configuration.getManagementInfoTypes().toArray()) + "' successfully");
 		}
 
-		MANAGEMENT_INFOTYPES = propHandler.getListPropertyValue("management.infotypes");
-		if (MANAGEMENT_INFOTYPES == null) {
-			getTrace().addWarning("Can't load Management Infotypes property from 'router.properties' file.");
+		if (configuration.getDecisionTable() == null) {
+			trace.warning("Can't compile routing rules from 'router.properties' file: "
+					+ configuration.getRoutingRulesError());
 			return false;
 		} else {
-			getTrace().addDebugMessage("Loaded Management Infotypes property with value: '"
-					+ Arrays.toString(MANAGEMENT_INFOTYPES.toArray()) + "' successfully");
+			trace.debug(() -> "Compiled routing rules " + configuration.getDecisionTable() + " successfully");
 		}
 
+		trace.debug(() -> "Using '" + configuration.getParserEngine() + "' parser engine");
+
 		return true;
 	}
 
@@ -412,74 +882,150 @@ public class HRMD_to_ReceiverDetermination extends AbstractTransformation {
 	 * to DOM {@link Document} or returns {@code null} if any error appear.
 	 *
 	 * @param ti {@link TransformationInput} object instance
+	 * @param trace {@link RouterTrace} of current message
+	 *
+	 * @return {@link Document} that contains incoming IDoc XML
+	 * or {@code null} if any error appear.
+	 */
+	private Document getDocumentFromTransformationInput(TransformationInput ti, RouterTrace trace) {
+		try (InputStream is = trace.getRecord().countPayload(ti.getInputPayload().getInputStream())){
+			return parseDocument(is, trace);
+		} catch (IOException ioe) {
+			trace.warning("Encountered IOException during incoming message parsing ", ioe);
+		}
+		return null;
+	}
+
+	/**
+	 * Method parses incoming message from given {@link InputStream} to DOM {@link Document}
+	 * or returns {@code null} if any error appear. Stream is not closed.
+	 *
+	 * @param is {@link InputStream} of incoming message
+	 * @param trace {@link RouterTrace} of current message
 	 *
 	 * @return {@link Document} that contains incoming IDoc XML
 	 * or {@code null} if any error appear.
 	 */
-	private Document getDocumentFromTransformationInput(TransformationInput ti) {
-		getTrace().addDebugMessage("Started to parse HRMD_A09 XML to DOM Document.");
-		try (InputStream is = ti.getInputPayload().getInputStream()){
-			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-			DocumentBuilder db = dbf.newDocumentBuilder();
-			Document doc = db.parse(is);
-			getTrace().addDebugMessage("Finished parsing of HRMD_A09 XML to DOM Document.");
+	private Document parseDocument(InputStream is, RouterTrace trace) {
+		trace.debug("Started to parse HRMD_A09 XML to DOM Document.");
+		RouterTrace.Phase phase = trace.phase("parse");
+		try {
+			Document doc = newDocumentBuilder().parse(new FilterInputStream(is) {
+				@Override
+				public void close() {
+					// Stream is closed by its owner
+				}
+			});
+			trace.debug("Finished parsing of HRMD_A09 XML to DOM Document.");
 			return doc;
 		} catch (IOException ioe) {
-			getTrace().addWarning("Encountered IOException during incoming message parsing ", ioe);
+			trace.warning("Encountered IOException during incoming message parsing ", ioe);
 		} catch (ParserConfigurationException pce) {
-			getTrace().addWarning("Encountered ParserConfigurationException during incoming message parsing ", pce);
+			trace.warning("Encountered ParserConfigurationException during incoming message parsing ", pce);
 		} catch (SAXException se) {
-			getTrace().addWarning("Encountered SAXException during incoming message parsing ", se);
+			trace.warning("Encountered SAXException during incoming message parsing ", se);
+		} finally {
+			phase.end();
 		}
 		return null;
 	}
 
 	/**
-	 * Method generates XML {@link String} of SAP BASIS type {@code ReceiverDetermination}.
+	 * Method generates XML message of SAP BASIS type {@code ReceiverDetermination} for {@link RoutingResultCache}
+	 * with {@link #writeReceiversXML(OutputStream, Map, RouterTrace)}.
 	 *
-	 * @return {@link String} message with all Business Systems to which message should be routed
-	 * or {@code null}, if {@link #receivers} {@link Map} is empty.
+	 * @param receivers - map of BUKRS and SystemID correspondences
+	 * @param trace - {@link RouterTrace} of current message
+	 *
+	 * @return UTF-8 bytes of message or {@code null}, if receivers map is empty
 	 */
-	private String generateReceiversXML() {
-		if (receivers.isEmpty()) {
-			getTrace().addWarning("Got empty receivers map - can't generate ReceiverDetermination XML.");
-			return null;
-		}
+	byte[] generateReceiversXML(Map<String, String> receivers, RouterTrace trace) {
+		if (receivers.isEmpty()) return null;
 
-		Set<String> uniqueSystemIds = new HashSet<>(receivers.values());
+		ByteArrayOutputStream os = new ByteArrayOutputStream(RECEIVERS_XML_START.length + RECEIVERS_XML_END.length
+				+ 64 * receivers.size());
+		try {
+			writeReceiversXML(os, receivers, trace);
+		} catch (IOException ioe) {
+			// ByteArrayOutputStream doesn't throw IOException
+			throw new UncheckedIOException(ioe);
+		}
+		return os.toByteArray();
+	}
 
-		getTrace().addDebugMessage("Creating ReceiverDetermination XML. Final receivers count: " + uniqueSystemIds.size());
+	/**
+	 * Method writes XML message of SAP BASIS type {@code ReceiverDetermination} into given {@link OutputStream}.
+	 * Fixed parts of the message are pre-encoded, receiver systems are written in natural order,
+	 * so the same routing decision always gives byte-identical message.
+	 *
+	 * @param os - {@link OutputStream} of message
+	 * @param receivers - map of BUKRS and SystemID correspondences
+	 * @param trace - {@link RouterTrace} of current message
+	 *
+	 * @return number of written receiver systems
+	 * @throws IOException if writing to stream fails
+	 */
+	private int writeReceiversXML(OutputStream os, Map<String, String> receivers, RouterTrace trace) throws IOException {
+		Set<String> uniqueSystemIds = new TreeSet<>(receivers.values());
 
-		StringBuilder sb = new StringBuilder();
-		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-		sb.append("<ns1:Receivers xmlns:ns1=\"http://sap.com/xi/XI/System\">");
+		trace.debug(() -> "Creating ReceiverDetermination XML. Final receivers count: " + uniqueSystemIds.size());
 
+		int written = 0;
+		os.write(RECEIVERS_XML_START);
 		for (String systemId : uniqueSystemIds) {
 			if (systemId == null || "".equals(systemId)) continue;
 
-			sb.append("<Receiver><Service>");
-			sb.append(systemId);
-			sb.append("</Service></Receiver>");
+			os.write(RECEIVER_START);
+			os.write(systemId.getBytes(StandardCharsets.UTF_8));
+			os.write(RECEIVER_END);
+			written++;
 		}
-
-		sb.append("</ns1:Receivers>");
-
-		return sb.toString();
+		os.write(RECEIVERS_XML_END);
+		return written;
 	}
 
 	/**
-	 * Method writes XML message string of SAP BASIS type {@code ReceiverDetermination}
-	 * into {@link OutputStream} in {@link TransformationOutput} object instance.
+	 * Method writes XML message of SAP BASIS type {@code ReceiverDetermination} into {@link OutputStream}
+	 * in {@link TransformationOutput} object instance. Message serialized for {@link RoutingResultCache}
+	 * is copied as is, otherwise it's written directly with {@link #writeReceiversXML(OutputStream, Map, RouterTrace)}.
 	 *
 	 * @param to - {@link TransformationOutput} object instance
-	 * @param xml - target message xml string payload
+	 * @param result - {@link RoutingResult} of current message
+	 * @param trace - {@link RouterTrace} of current message
 	 */
-	private void writeXMLToTransformationOutput(TransformationOutput to, String xml) {
+	private void writeReceiversXMLToTransformationOutput(TransformationOutput to, RoutingResult result,
+														  RouterTrace trace) {
+		if (result.getReceivers().isEmpty()) {
+			trace.warning("Got empty receivers map - can't generate ReceiverDetermination XML.");
+			return;
+		}
+
+		RouterTrace.Phase phase = trace.phase("output");
 		try (OutputStream os = to.getOutputPayload().getOutputStream()) {
-			os.write(xml.getBytes(StandardCharsets.UTF_8));
-			getTrace().addDebugMessage("Finished writing result message to 'TransformationOutput'");
+			byte[] receiversXML = result.getOutput();
+			if (receiversXML != null) {
+				os.write(receiversXML);
+				phase.add("bytes", receiversXML.length);
+			} else {
+				phase.add("receivers", writeReceiversXML(os, result.getReceivers(), trace));
+			}
+			trace.debug("Finished writing result message to 'TransformationOutput'");
 		} catch (Exception e) {
-			getTrace().addWarning("Encountered error during writing to TransformationOutput ", e);
+			trace.warning("Encountered error during writing to TransformationOutput ", e);
+		} finally {
+			phase.end();
+		}
+	}
+
+	/**
+	 * Utility method to create {@link DocumentBuilder} with shared factory.
+	 *
+	 * @return new {@link DocumentBuilder}
+	 * @throws ParserConfigurationException if builder can't be created
+	 */
+	private static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+		synchronized (DOCUMENT_BUILDER_FACTORY) {
+			return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
 		}
 	}
 
@@ -0,0 +1,96 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import com.sap.aii.mapping.api.AbstractTransformation;
+import com.sap.aii.mapping.api.StreamTransformationException;
+import com.sap.aii.mapping.api.TransformationInput;
+import com.sap.aii.mapping.api.TransformationOutput;
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.parser.HrmdIdocSplitter;
+import ru.sap.po.mapping.hrmd.router.routing.DecisionTable;
+import ru.sap.po.mapping.hrmd.router.routing.DynamicConfigurationCodec;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Optional mapping program, which sends each receiver system only the part of <tt>HRMD_A09</tt> IDOC
+ * that belongs to it. It's used in Operation Mapping of Interface Determination, after receivers
+ * are determined by {@link HRMD_to_ReceiverDetermination}.
+ *
+ * Output contains control record, person objects, which company codes are routed to current receiver
+ * system, and all organizational management objects, if message is routed to all receivers.
+ * 'BUKRS'-'ReceiverSystem' pairs and route to all indicator are read from Dynamic Configuration,
+ * written by receiver determination.
+ * Message is read and written in a single streaming pass.
+ */
+public class HRMD_to_ReceiverPayload extends AbstractTransformation {
+
+	@Override
+	public void transform (TransformationInput ti, TransformationOutput to)
+			throws StreamTransformationException {
+
+		RouterConfiguration configuration = RouterConfiguration.getCurrent();
+		RouterTrace trace = new RouterTrace(getTrace(), configuration.getTraceLevel(), configuration.isTraceAggregated());
+
+		trace.info("HRMD_A to receiver payload mapping program started!");
+
+		String receiver = ti.getInputHeader().getReceiverService();
+		DecisionTable decisionTable = configuration.getDecisionTable();
+
+		try (InputStream is = ti.getInputPayload().getInputStream()) {
+			OutputStream os = to.getOutputPayload().getOutputStream();
+
+			// Without receiver or routing rules message can't be split, so receiver gets the whole message
+			if (isNullOrEmpty(receiver) || decisionTable == null) {
+				trace.warning("Can't determine receiver system or routing rules, whole message is passed to receiver.");
+				copy(is, os);
+				return;
+			}
+
+			Map<String, String> receivers = DynamicConfigurationCodec.read(ti.getDynamicConfiguration());
+			boolean routeToAll = DynamicConfigurationCodec.isRouteToAll(ti.getDynamicConfiguration());
+			trace.debug(() -> "Read " + receivers.size() + " BUKRS-SystemID pair(s) from DynamicConfiguration, "
+					+ "route to all: " + routeToAll);
+
+			RouterTrace.Phase phase = trace.phase("split");
+			Map<String, Integer> objects;
+			try {
+				objects = new HrmdIdocSplitter(decisionTable, DecisionTable.today())
+						.split(is, receivers, routeToAll, Collections.singletonMap(receiver, os));
+				phase.add("objects", objects.get(receiver));
+			} finally {
+				phase.end();
+			}
+			trace.info(() -> "Passed " + objects.get(receiver) + " object(s) to receiver system '" + receiver + "'");
+		} catch (IOException ioe) {
+			throw new StreamTransformationException("Can't split HRMD_A09 message: " + ioe.getMessage(), ioe);
+		} catch (XMLStreamException xse) {
+			throw new StreamTransformationException("Can't split HRMD_A09 message: " + xse.getMessage(), xse);
+		}
+
+		trace.info("HRMD_A to receiver payload mapping program finished!");
+	}
+
+	private void copy(InputStream is, OutputStream os) throws IOException {
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = is.read(buffer)) != -1) os.write(buffer, 0, read);
+	}
+
+	/**
+	 * Utility method to check if {@link String} is null or empty.
+	 *
+	 * @param string input String to check
+	 *
+	 * @return boolean result of check
+	 */
+	private boolean isNullOrEmpty(String string) {
+		return string == null || string.length() == 0;
+	}
+
+}
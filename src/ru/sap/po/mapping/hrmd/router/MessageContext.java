@@ -0,0 +1,168 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import com.sap.aii.mapping.api.InputHeader;
+import com.sap.aii.mapping.api.TransformationInput;
+import com.sap.aii.mapping.lookup.LookupException;
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoReceiversCache;
+import ru.sap.po.mapping.hrmd.router.routing.CompanyCodeRoutingTable;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State of a single message, processed by {@link HRMD_to_ReceiverDetermination}.
+ *
+ * Context is created for each call of <code>transform</code> and is confined to the thread
+ * that processes the message, so one mapping instance can process messages in parallel.
+ */
+final class MessageContext {
+
+	private final TransformationInput input;
+
+	private final RouterConfiguration configuration;
+
+	private final RouterTrace trace;
+
+	private final IcoKey icoKey;
+
+	/**
+	 * Compiled routing table of Operation Mapping parameters of current ICo object.
+	 */
+	private final CompanyCodeRoutingTable routingTable;
+
+	/**
+	 * Resolver of company codes unknown to routing table, created once per message.
+	 */
+	private CompanyCodeRoutingTable.Resolver parametersResolver;
+
+	/**
+	 * Map of BUKRS and SystemID correspondences.
+	 */
+	private final Map<String, String> receivers = new HashMap<>();
+
+	/**
+	 * Company codes collected by one of scanners or {@code null}, if receivers were collected from DOM tree.
+	 */
+	private Collection<String> companyCodes;
+
+	/**
+	 * A variable indicates that message should be routed to all
+	 * possible receiver systems or not.
+	 */
+	private boolean routeToAll = false;
+
+	/**
+	 * Callback invoked once, when route to all indicator is set for the first time, or {@code null}.
+	 */
+	private Runnable routeToAllListener;
+
+	/**
+	 * Indicates that ICo lookup was performed before the whole message was scanned.
+	 */
+	private boolean lookupDone;
+
+	/**
+	 * Result of ICo lookup performed before the whole message was scanned, {@code null}, if lookup
+	 * did not return valid answer.
+	 */
+	private IcoReceiversCache.Result lookupResult;
+
+	/**
+	 * Exception thrown by ICo lookup performed before the whole message was scanned. It's thrown again only
+	 * if message is routed to all receivers.
+	 */
+	private LookupException lookupError;
+
+	MessageContext(TransformationInput input, RouterConfiguration configuration, RouterTrace trace) {
+		this.input = input;
+		this.configuration = configuration;
+		this.trace = trace;
+		InputHeader ih = input.getInputHeader();
+		this.icoKey = new IcoKey(ih.getSenderService(), ih.getInterface(), ih.getInterfaceNamespace());
+		this.routingTable = CompanyCodeRoutingTable.forScenario(icoKey);
+	}
+
+	TransformationInput getInput() {
+		return input;
+	}
+
+	RouterConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	RouterTrace getTrace() {
+		return trace;
+	}
+
+	IcoKey getIcoKey() {
+		return icoKey;
+	}
+
+	CompanyCodeRoutingTable getRoutingTable() {
+		return routingTable;
+	}
+
+	CompanyCodeRoutingTable.Resolver getParametersResolver() {
+		return parametersResolver;
+	}
+
+	void setParametersResolver(CompanyCodeRoutingTable.Resolver parametersResolver) {
+		this.parametersResolver = parametersResolver;
+	}
+
+	Map<String, String> getReceivers() {
+		return receivers;
+	}
+
+	Collection<String> getCompanyCodes() {
+		return companyCodes;
+	}
+
+	void setCompanyCodes(Collection<String> companyCodes) {
+		this.companyCodes = companyCodes;
+	}
+
+	boolean isRouteToAll() {
+		return routeToAll;
+	}
+
+	void setRouteToAll() {
+		if (!routeToAll && routeToAllListener != null) routeToAllListener.run();
+		routeToAll = true;
+	}
+
+	Runnable getRouteToAllListener() {
+		return routeToAllListener;
+	}
+
+	void setRouteToAllListener(Runnable routeToAllListener) {
+		this.routeToAllListener = routeToAllListener;
+	}
+
+	boolean isLookupDone() {
+		return lookupDone;
+	}
+
+	IcoReceiversCache.Result getLookupResult() {
+		return lookupResult;
+	}
+
+	LookupException getLookupError() {
+		return lookupError;
+	}
+
+	void setLookupResult(IcoReceiversCache.Result lookupResult) {
+		this.lookupDone = true;
+		this.lookupResult = lookupResult;
+	}
+
+	void setLookupError(LookupException lookupError) {
+		this.lookupDone = true;
+		this.lookupError = lookupError;
+	}
+
+}
@@ -0,0 +1,279 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import com.sap.aii.mapping.api.DynamicConfiguration;
+import com.sap.aii.mapping.api.DynamicConfigurationKey;
+import com.sap.aii.mapping.api.InputHeader;
+import com.sap.aii.mapping.api.InputParameters;
+import com.sap.aii.mapping.api.InputPayload;
+import com.sap.aii.mapping.api.OutputPayload;
+import com.sap.aii.mapping.api.TransformationInput;
+import com.sap.aii.mapping.api.TransformationOutput;
+import com.sap.aii.mapping.api.UndefinedParameterException;
+import com.sap.aii.mapping.lookup.Channel;
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoReceiversSnapshot;
+import ru.sap.po.mapping.hrmd.router.lookup.LookupConnector;
+import ru.sap.po.mapping.hrmd.router.metrics.FlightRecorder;
+import ru.sap.po.mapping.hrmd.router.metrics.RouterMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Warm-up of {@link HRMD_to_ReceiverDetermination} after deploy or restart.
+ *
+ * When "warmup.enabled" is set, warm-up is started on a background thread as soon as mapping class is loaded.
+ * It validates "router.properties" and processes bundled synthetic <tt>HRMD_A09</tt> message
+ * "hrmd-router-warmup.xml" "warmup.messages" times through the whole routing path, so parser factories,
+ * routing rules and classes are loaded and hot methods are compiled by JIT before most of live messages arrive.
+ *
+ * Synthetic messages belong to a separate ICo object, their lookup is answered with a canned response
+ * without calls. They are not recorded in {@link RouterMetrics}, {@link FlightRecorder} and
+ * {@link IcoReceiversSnapshot}.
+ */
+public final class RouterWarmUp {
+
+	private static final String SAMPLE_FILENAME = "hrmd-router-warmup.xml";
+
+	private static final IcoKey ICO_KEY = new IcoKey("HRMD_ROUTER_WARMUP", "HRMD_A.HRMD_A09", "urn:ru:SAP:warmup");
+
+	/**
+	 * Number of company codes 'C000', 'C001' etc. of bundled sample.
+	 */
+	private static final int COMPANY_CODES = 16;
+
+	private static final AtomicBoolean STARTED = new AtomicBoolean(false);
+
+	private RouterWarmUp() {
+	}
+
+	/**
+	 * Starts warm-up on a daemon thread, if it's enabled and was not started yet.
+	 */
+	static void startIfEnabled() {
+		if (!RouterConfiguration.getCurrent().isWarmUpEnabled() || !STARTED.compareAndSet(false, true)) return;
+
+		Thread thread = new Thread(RouterWarmUp::run, "hrmd-router-warmup");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Method performs warm-up in calling thread. Result is published as warm-up status of {@link RouterMetrics}.
+	 *
+	 * @return number of processed synthetic messages, 0 if configuration or bundled sample is not valid
+	 */
+	public static int run() {
+		RouterMetrics metrics = RouterMetrics.getInstance();
+		RouterConfiguration configuration = RouterConfiguration.getCurrent();
+
+		String error = configuration.getConfigurationError();
+		if (error != null) {
+			metrics.warmUpStatus("Not performed: " + error);
+			return 0;
+		}
+
+		byte[] sample = readSample();
+		if (sample == null) {
+			metrics.warmUpStatus("Not performed: can't read '" + SAMPLE_FILENAME + "'");
+			return 0;
+		}
+
+		metrics.warmUpStatus("Running");
+		int messages = configuration.getWarmUpMessages();
+
+		IcoReceiversSnapshot.getInstance().exclude(ICO_KEY);
+		HRMD_to_ReceiverDetermination mapping = new HRMD_to_ReceiverDetermination(createLookupConnector());
+
+		long started = System.nanoTime();
+		int processed = 0;
+		metrics.ignoreThread(Thread.currentThread());
+		try {
+			for (; processed < messages; processed++) {
+				mapping.transform(new WarmUpInput(sample, "warmup-" + processed), WarmUpOutput.INSTANCE);
+			}
+			metrics.warmUpStatus("Finished: " + processed + " message(s) in "
+					+ (System.nanoTime() - started) / 1000000 + " ms");
+		} catch (Exception | LinkageError e) {
+			metrics.warmUpStatus("Failed after " + processed + " message(s): " + e);
+		} finally {
+			metrics.ignoreThread(null);
+		}
+		return processed;
+	}
+
+	private static byte[] readSample() {
+		try (InputStream is = RouterWarmUp.class.getClassLoader().getResourceAsStream(SAMPLE_FILENAME)) {
+			if (is == null) return null;
+			ByteArrayOutputStream os = new ByteArrayOutputStream(32768);
+			byte[] buffer = new byte[8192];
+			for (int read; (read = is.read(buffer)) != -1; ) os.write(buffer, 0, read);
+			return os.toByteArray();
+		} catch (IOException ioe) {
+			return null;
+		}
+	}
+
+	private static String companyCode(int index) {
+		return String.format("C%03d", index);
+	}
+
+	private static String receiverSystem(String companyCode) {
+		return "WARMUP_" + (companyCode.hashCode() & 3);
+	}
+
+	/**
+	 * @return {@link LookupConnector}, which answers with <code>MappingParamters</code> of all company codes of sample
+	 */
+	private static LookupConnector createLookupConnector() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<ns1:IntegratedConfigurationReadResponse xmlns:ns1=\"http://sap.com/xi/BASIS\">");
+		sb.append("<IntegratedConfiguration><MappingParamters>");
+		for (int i = 0; i < COMPANY_CODES; i++) {
+			String companyCode = companyCode(i);
+			sb.append("<String><Name>").append(companyCode).append("</Name>");
+			sb.append("<Value>").append(receiverSystem(companyCode)).append("</Value></String>");
+		}
+		sb.append("</MappingParamters></IntegratedConfiguration></ns1:IntegratedConfigurationReadResponse>");
+		byte[] response = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+		return (service, channel, request, trace) -> new ByteArrayInputStream(response);
+	}
+
+	private static final class WarmUpInput extends TransformationInput {
+		private final byte[] payload;
+		private final String messageId;
+		private final Map<DynamicConfigurationKey, String> dynamicConfiguration = new HashMap<>();
+
+		private WarmUpInput(byte[] payload, String messageId) {
+			this.payload = payload;
+			this.messageId = messageId;
+		}
+
+		@Override
+		public InputPayload getInputPayload() {
+			return new InputPayload() {
+				private final InputStream is = new ByteArrayInputStream(payload);
+
+				@Override
+				public InputStream getInputStream() {
+					return is;
+				}
+			};
+		}
+
+		@Override
+		public InputHeader getInputHeader() {
+			return new InputHeader() {
+				@Override
+				public String getMessageId() {
+					return messageId;
+				}
+
+				@Override
+				public String getSenderService() {
+					return ICO_KEY.getSenderComponent();
+				}
+
+				@Override
+				public String getInterface() {
+					return ICO_KEY.getInterfaceName();
+				}
+
+				@Override
+				public String getInterfaceNamespace() {
+					return ICO_KEY.getInterfaceNamespace();
+				}
+			};
+		}
+
+		@Override
+		public InputParameters getInputParameters() {
+			return new InputParameters() {
+				@Override
+				public String getString(String name) throws UndefinedParameterException {
+					// Parameters are "RC000", "RC001" etc.
+					return receiverSystem(name.substring(1));
+				}
+
+				@Override
+				public Object getValue(String name) throws UndefinedParameterException {
+					return getString(name);
+				}
+
+				@Override
+				public int getInt(String name) throws UndefinedParameterException {
+					throw new UndefinedParameterException(name);
+				}
+
+				@Override
+				public Channel getChannel(String name) throws UndefinedParameterException {
+					throw new UndefinedParameterException(name);
+				}
+			};
+		}
+
+		@Override
+		public DynamicConfiguration getDynamicConfiguration() {
+			return new DynamicConfiguration() {
+				@Override
+				public String put(DynamicConfigurationKey key, String value) {
+					return dynamicConfiguration.put(key, value);
+				}
+
+				@Override
+				public String get(DynamicConfigurationKey key) {
+					return dynamicConfiguration.get(key);
+				}
+
+				@Override
+				public Iterator<DynamicConfigurationKey> getKeys() {
+					return dynamicConfiguration.keySet().iterator();
+				}
+
+				@Override
+				public String removeKey(DynamicConfigurationKey key) {
+					return dynamicConfiguration.remove(key);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Output, which discards receivers XML of synthetic messages.
+	 */
+	private static final class WarmUpOutput extends TransformationOutput {
+		private static final WarmUpOutput INSTANCE = new WarmUpOutput();
+
+		private final OutputPayload payload = new OutputPayload() {
+			@Override
+			public OutputStream getOutputStream() {
+				return new OutputStream() {
+					@Override
+					public void write(int b) {
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) {
+					}
+				};
+			}
+		};
+
+		@Override
+		public OutputPayload getOutputPayload() {
+			return payload;
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+package ru.sap.po.mapping.hrmd.router.config;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable set of infotype codes. Membership of 4-digit codes is checked with a 10000-bit {@link BitSet},
+ * so {@link #contains(Object)} is O(1) and doesn't allocate. Other codes are kept in a regular set.
+ * Iteration order is the order of codes in configuration.
+ */
+public final class InfoTypeSet extends AbstractSet<String> {
+
+    private static final int FOUR_DIGIT_CODES = 10000;
+
+    private final Set<String> codes;
+    private final BitSet fourDigitCodes = new BitSet(FOUR_DIGIT_CODES);
+
+    public InfoTypeSet(Iterable<String> codes) {
+        Set<String> set = new LinkedHashSet<>();
+        for (String code : codes) {
+            set.add(code);
+            int index = index(code);
+            if (index >= 0) fourDigitCodes.set(index);
+        }
+        this.codes = Collections.unmodifiableSet(set);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) return false;
+        String code = (String) o;
+        int index = index(code);
+        return index >= 0 ? fourDigitCodes.get(index) : codes.contains(code);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return codes.iterator();
+    }
+
+    @Override
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * @return index of 4-digit code in {@link BitSet} or -1, if code is not a 4-digit one
+     */
+    private static int index(String code) {
+        if (code.length() != 4) return -1;
+        int index = 0;
+        for (int i = 0; i < 4; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+}
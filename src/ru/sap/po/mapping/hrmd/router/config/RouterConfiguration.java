@@ -0,0 +1,377 @@
+package ru.sap.po.mapping.hrmd.router.config;
+
+import ru.sap.po.mapping.hrmd.router.routing.DecisionTable;
+import ru.sap.po.mapping.hrmd.router.routing.DynamicConfigurationCodec;
+import ru.sap.po.mapping.hrmd.router.trace.TraceLevel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of mapping configuration, read from "router.properties" file.
+ * All values are parsed once, when snapshot is created. The same snapshot is shared
+ * by all mapping instances and threads until {@link RouterPropertiesHandler} reloads properties.
+ */
+public final class RouterConfiguration {
+
+    private static final String DEFAULT_PARSER_ENGINE = "stax";
+    private static final long DEFAULT_BYTES_MARK_LIMIT = 16 * 1024 * 1024;
+    private static final long DEFAULT_PARALLEL_MAX_BYTES = 256 * 1024 * 1024;
+    private static final long DEFAULT_LOOKUP_CACHE_TTL_SECONDS = 300;
+    private static final long DEFAULT_LOOKUP_CACHE_STALE_SECONDS = 3600;
+    private static final long DEFAULT_LOOKUP_CACHE_MAX_ENTRIES = 256;
+    private static final long DEFAULT_ROUTING_TABLE_TTL_SECONDS = 300;
+    private static final long DEFAULT_ROUTING_RESULT_CACHE_MAX_ENTRIES = 256;
+    private static final long DEFAULT_WARMUP_MESSAGES = 500;
+    private static final long DEFAULT_RECORDER_CAPACITY = 64;
+    private static final long DEFAULT_LOOKUP_SLOT_TIMEOUT_MILLIS = 30000;
+    private static final long DEFAULT_LOOKUP_MAX_CONCURRENT_CALLS = 4;
+    private static final long DEFAULT_LOOKUP_PREFETCH_THREADS = 4;
+
+    private final Properties properties;
+    private final long version;
+
+    private final String lookupService;
+    private final String lookupChannel;
+    private final InfoTypeSet managementInfoTypes;
+    private final DecisionTable decisionTable;
+    private final String routingRulesError;
+    private final String parserEngine;
+    private final long bytesMarkLimit;
+    private final long parallelThresholdBytes;
+    private final long parallelMaxBytes;
+    private final int parallelThreads;
+    private final TraceLevel traceLevel;
+    private final boolean traceAggregated;
+    private final long lookupCacheTtlMillis;
+    private final long lookupCacheStaleMillis;
+    private final int lookupCacheMaxEntries;
+    private final long lookupSlotTimeoutMillis;
+    private final int lookupMaxConcurrentCalls;
+    private final boolean lookupPrefetchEnabled;
+    private final Set<String> lookupPrefetchInterfaces;
+    private final int lookupPrefetchThreads;
+    private final String lookupSnapshotFile;
+    private final long routingTableTtlMillis;
+    private final int routingResultCacheMaxEntries;
+    private final long reloadIntervalMillis;
+    private final DynamicConfigurationCodec.Mode dynamicConfigurationMode;
+    private final boolean warmUpEnabled;
+    private final int warmUpMessages;
+    private final long recorderThresholdMillis;
+    private final int recorderCapacity;
+
+    /**
+     * @param properties loaded properties or {@code null}, if file could not be loaded
+     * @param version    sequential number of snapshot, incremented on each reload
+     */
+    RouterConfiguration(Properties properties, long version) {
+        this.properties = new Properties();
+        if (properties != null) this.properties.putAll(properties);
+        this.version = version;
+
+        this.lookupService = getProperty("lookup.sappo.component.name");
+        this.lookupChannel = getProperty("lookup.sappo.channel.ico.name");
+        String infoTypes = getProperty("management.infotypes");
+        this.managementInfoTypes = infoTypes == null ? null : new InfoTypeSet(Arrays.asList(infoTypes.split(",")));
+        DecisionTable table = null;
+        String error = null;
+        try {
+            table = DecisionTable.compile(this::getProperty, managementInfoTypes);
+        } catch (IllegalArgumentException iae) {
+            error = iae.getMessage();
+        }
+        this.decisionTable = table;
+        this.routingRulesError = error;
+        String engine = getProperty("parser.engine");
+        this.parserEngine = engine == null ? DEFAULT_PARSER_ENGINE : engine.trim();
+        this.bytesMarkLimit = getLong("parser.bytes.mark.limit.bytes", DEFAULT_BYTES_MARK_LIMIT);
+        this.parallelThresholdBytes = getLong("parser.parallel.threshold.bytes", 0);
+        this.parallelMaxBytes = getLong("parser.parallel.max.bytes", DEFAULT_PARALLEL_MAX_BYTES);
+        this.parallelThreads = (int) getLong("parser.parallel.threads", 0);
+        this.traceLevel = TraceLevel.parse(getProperty("trace.level"), TraceLevel.DEBUG);
+        this.traceAggregated = Boolean.parseBoolean(getProperty("trace.aggregated"));
+        this.lookupCacheTtlMillis = 1000 * getLong("lookup.cache.ttl.seconds", DEFAULT_LOOKUP_CACHE_TTL_SECONDS);
+        this.lookupCacheStaleMillis = 1000 * getLong("lookup.cache.stale.seconds", DEFAULT_LOOKUP_CACHE_STALE_SECONDS);
+        this.lookupCacheMaxEntries = (int) getLong("lookup.cache.max.entries", DEFAULT_LOOKUP_CACHE_MAX_ENTRIES);
+        this.lookupSlotTimeoutMillis = getLong("lookup.slot.timeout.millis", DEFAULT_LOOKUP_SLOT_TIMEOUT_MILLIS);
+        this.lookupMaxConcurrentCalls = (int) getLong("lookup.max.concurrent.calls", DEFAULT_LOOKUP_MAX_CONCURRENT_CALLS);
+        this.lookupPrefetchEnabled = Boolean.parseBoolean(getProperty("lookup.prefetch.enabled"));
+        this.lookupPrefetchInterfaces = Collections.unmodifiableSet(getSet("lookup.prefetch.interfaces"));
+        this.lookupPrefetchThreads = (int) getLong("lookup.prefetch.threads", DEFAULT_LOOKUP_PREFETCH_THREADS);
+        this.lookupSnapshotFile = getProperty("lookup.snapshot.file");
+        this.routingTableTtlMillis = 1000 * getLong("routing.table.ttl.seconds", DEFAULT_ROUTING_TABLE_TTL_SECONDS);
+        this.routingResultCacheMaxEntries =
+                (int) getLong("routing.result.cache.max.entries", DEFAULT_ROUTING_RESULT_CACHE_MAX_ENTRIES);
+        this.reloadIntervalMillis = 1000 * getLong("config.reload.interval.seconds", 0);
+        this.dynamicConfigurationMode = DynamicConfigurationCodec.Mode.parse(
+                getProperty("dynamic.configuration.mode"), DynamicConfigurationCodec.Mode.PAIRS);
+        this.warmUpEnabled = Boolean.parseBoolean(getProperty("warmup.enabled"));
+        this.warmUpMessages = (int) getLong("warmup.messages", DEFAULT_WARMUP_MESSAGES);
+        this.recorderThresholdMillis = getLong("recorder.threshold.millis", 0);
+        this.recorderCapacity = (int) getLong("recorder.capacity", DEFAULT_RECORDER_CAPACITY);
+    }
+
+    /**
+     * @return current configuration snapshot
+     */
+    public static RouterConfiguration getCurrent() {
+        return RouterPropertiesHandler.getInstance().getConfiguration();
+    }
+
+    /**
+     * @return raw property value or {@code null}, if it's not set
+     */
+    String getProperty(String key) {
+        return properties.getProperty(key);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException nfe) {
+            return defaultValue;
+        }
+    }
+
+    private Set<String> getSet(String key) {
+        Set<String> values = new HashSet<>();
+        String value = getProperty(key);
+        if (value == null) return values;
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) values.add(item.trim());
+        }
+        return values;
+    }
+
+    /**
+     * @return description of the first missing or invalid mandatory property or {@code null}, if configuration is valid
+     */
+    public String getConfigurationError() {
+        if (properties.isEmpty()) return "'router.properties' file can't be loaded";
+        if (lookupService == null) return "Communication Component property is not set";
+        if (lookupChannel == null) return "Communication Channel property is not set";
+        if (managementInfoTypes == null) return "Management Infotypes property is not set";
+        if (decisionTable == null) return "routing rules can't be compiled: " + routingRulesError;
+        return null;
+    }
+
+    /**
+     * @return sequential number of snapshot, changes each time properties are reloaded
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Communication Component name of SAP PO itself or {@code null}, if it's not configured
+     */
+    public String getLookupService() {
+        return lookupService;
+    }
+
+    /**
+     * @return Communication Channel name for ICo lookup or {@code null}, if it's not configured
+     */
+    public String getLookupChannel() {
+        return lookupChannel;
+    }
+
+    /**
+     * @return {@link InfoTypeSet} of management infotypes or {@code null}, if it's not configured
+     */
+    public InfoTypeSet getManagementInfoTypes() {
+        return managementInfoTypes;
+    }
+
+    /**
+     * @return routing rules compiled to {@link DecisionTable} or {@code null}, if they are declared incorrectly
+     */
+    public DecisionTable getDecisionTable() {
+        return decisionTable;
+    }
+
+    /**
+     * @return description of routing rules declaration error or {@code null}
+     */
+    public String getRoutingRulesError() {
+        return routingRulesError;
+    }
+
+    /**
+     * @return name of parser engine: 'stax', 'bytes' or 'dom'
+     */
+    public String getParserEngine() {
+        return parserEngine;
+    }
+
+    /**
+     * @return maximum number of bytes of incoming message, which 'bytes' engine keeps to fall back to DOM,
+     * if runtime stream can't be rewound itself
+     */
+    public long getBytesMarkLimit() {
+        return bytesMarkLimit;
+    }
+
+    /**
+     * @return minimum size of message, which is scanned in parallel by 'stax' engine, 0 if parallel scan is disabled
+     */
+    public long getParallelThresholdBytes() {
+        return parallelThresholdBytes;
+    }
+
+    /**
+     * @return maximum size of message, which is read into memory to be scanned in parallel
+     */
+    public long getParallelMaxBytes() {
+        return parallelMaxBytes;
+    }
+
+    /**
+     * @return number of threads of parallel scan, 0 for number of available processors.
+     * It's read once, when parallel scan is performed for the first time
+     */
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    /**
+     * @return maximum level of written trace messages
+     */
+    public TraceLevel getTraceLevel() {
+        return traceLevel;
+    }
+
+    /**
+     * @return {@code true}, if phase summaries must be written instead of per-item trace messages
+     */
+    public boolean isTraceAggregated() {
+        return traceAggregated;
+    }
+
+    /**
+     * @return period during which ICo lookup results are fresh, 0 if lookup cache is disabled
+     */
+    public long getLookupCacheTtlMillis() {
+        return lookupCacheTtlMillis;
+    }
+
+    /**
+     * @return period after TTL during which stale ICo lookup results may be served
+     */
+    public long getLookupCacheStaleMillis() {
+        return lookupCacheStaleMillis;
+    }
+
+    /**
+     * @return maximum number of ICo objects in lookup cache
+     */
+    public int getLookupCacheMaxEntries() {
+        return lookupCacheMaxEntries;
+    }
+
+    /**
+     * @return maximum time to wait for a free lookup call slot
+     */
+    public long getLookupSlotTimeoutMillis() {
+        return lookupSlotTimeoutMillis;
+    }
+
+    /**
+     * @return maximum number of lookup calls performed at the same time
+     */
+    public int getLookupMaxConcurrentCalls() {
+        return lookupMaxConcurrentCalls;
+    }
+
+    /**
+     * @return {@code true}, if ICo lookup may be performed before the whole message is parsed
+     */
+    public boolean isLookupPrefetchEnabled() {
+        return lookupPrefetchEnabled;
+    }
+
+    /**
+     * @return names of interfaces, which messages mostly contain management infotypes,
+     * so ICo lookup is started for them before parsing
+     */
+    public Set<String> getLookupPrefetchInterfaces() {
+        return lookupPrefetchInterfaces;
+    }
+
+    /**
+     * @return number of threads, which scan messages in background while ICo lookup is performed
+     */
+    public int getLookupPrefetchThreads() {
+        return lookupPrefetchThreads;
+    }
+
+    /**
+     * @return path of persistent snapshot of ICo lookup pairs or {@code null}, if snapshot is disabled
+     */
+    public String getLookupSnapshotFile() {
+        return lookupSnapshotFile;
+    }
+
+    /**
+     * @return period after which company code routing tables are recompiled, 0 to resolve on every message
+     */
+    public long getRoutingTableTtlMillis() {
+        return routingTableTtlMillis;
+    }
+
+    /**
+     * @return maximum number of routing results remembered for next messages, 0 if routing result cache is disabled
+     */
+    public int getRoutingResultCacheMaxEntries() {
+        return routingResultCacheMaxEntries;
+    }
+
+    /**
+     * @return interval of properties file modification checks, 0 if hot reload is disabled
+     */
+    public long getReloadIntervalMillis() {
+        return reloadIntervalMillis;
+    }
+
+    /**
+     * @return form of 'BUKRS'-'ReceiverSystem' pairs in Dynamic Configuration of message
+     */
+    public DynamicConfigurationCodec.Mode getDynamicConfigurationMode() {
+        return dynamicConfigurationMode;
+    }
+
+    /**
+     * @return {@code true}, if mapping program must be warmed up when its class is loaded
+     */
+    public boolean isWarmUpEnabled() {
+        return warmUpEnabled;
+    }
+
+    /**
+     * @return number of synthetic messages processed by warm-up
+     */
+    public int getWarmUpMessages() {
+        return warmUpMessages;
+    }
+
+    /**
+     * @return minimum processing time of message, which is kept by flight recorder, 0 if recorder is disabled
+     */
+    public long getRecorderThresholdMillis() {
+        return recorderThresholdMillis;
+    }
+
+    /**
+     * @return maximum number of slow messages kept by flight recorder
+     */
+    public int getRecorderCapacity() {
+        return recorderCapacity;
+    }
+
+}
@@ -3,43 +3,123 @@ package ru.sap.po.mapping.hrmd.router.config;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
 
 public class RouterPropertiesHandler {
 
     private static final String PROPERTIES_FILENAME = "router.properties";
 
-    private static RouterPropertiesHandler instance;
-    private Properties properties;
+    /**
+     * Instance is created on first use by class loading, without locks.
+     */
+    private static final class InstanceHolder {
+        private static final RouterPropertiesHandler INSTANCE = new RouterPropertiesHandler();
+    }
+
+    /**
+     * Current configuration snapshot - replaced as a whole on reload.
+     */
+    private final AtomicReference<RouterConfiguration> configuration;
+
+    /**
+     * Time of the next check of properties file modification.
+     */
+    private final AtomicLong nextCheck = new AtomicLong();
+
+    private volatile long lastModified;
 
     private RouterPropertiesHandler() {
-        properties = loadPropertiesFromClasspath();
+        lastModified = getLastModifiedFromClasspath();
+        configuration = new AtomicReference<>(new RouterConfiguration(loadPropertiesFromClasspath(), 1));
+        nextCheck.set(System.currentTimeMillis() + configuration.get().getReloadIntervalMillis());
     }
 
-    public static synchronized RouterPropertiesHandler getInstance() {
-        if (instance == null) {
-            instance = new RouterPropertiesHandler();
+    public static RouterPropertiesHandler getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Returns current configuration snapshot. If "config.reload.interval.seconds" is set, properties file
+     * is checked for modification once per interval by one of the calling threads, and new snapshot
+     * is published, if file was changed. Other threads are never blocked.
+     *
+     * @return current {@link RouterConfiguration} snapshot
+     */
+    public RouterConfiguration getConfiguration() {
+        RouterConfiguration current = configuration.get();
+        long interval = current.getReloadIntervalMillis();
+        if (interval > 0) {
+            long next = nextCheck.get();
+            long now = System.currentTimeMillis();
+            if (now >= next && nextCheck.compareAndSet(next, now + interval)) reloadIfModified();
         }
-        return instance;
+        return configuration.get();
+    }
+
+    /**
+     * Publishes snapshot of given properties instead of properties file. Allows to run mapping program
+     * outside of SAP PO runtime with different configurations, e.g. in tests and benchmarks.
+     * Snapshot is replaced again, if properties file is reloaded after its modification.
+     *
+     * @param properties mapping properties
+     *
+     * @return published {@link RouterConfiguration} snapshot
+     */
+    public RouterConfiguration setProperties(Properties properties) {
+        return configuration.updateAndGet(current -> new RouterConfiguration(properties, current.getVersion() + 1));
+    }
+
+    private void reloadIfModified() {
+        long modified = getLastModifiedFromClasspath();
+        if (modified == lastModified) return;
+
+        Properties properties = loadPropertiesFromClasspath();
+        // Keep current snapshot, if file can't be read at the moment
+        if (properties == null) return;
+
+        // Modified file replaces any snapshot published meanwhile, so modification is marked as applied only after it
+        configuration.updateAndGet(current -> new RouterConfiguration(properties, current.getVersion() + 1));
+        lastModified = modified;
     }
 
     private Properties loadPropertiesFromClasspath() {
-        try (InputStream input = this.getClass().getClassLoader().getResourceAsStream(PROPERTIES_FILENAME)) {
-            Properties prop = new Properties();
-            prop.load(input);
-            return prop;
+        URL url = this.getClass().getClassLoader().getResource(PROPERTIES_FILENAME);
+        if (url == null) return null;
+        try {
+            URLConnection connection = url.openConnection();
+            connection.setUseCaches(false);
+            try (InputStream input = connection.getInputStream()) {
+                Properties prop = new Properties();
+                prop.load(input);
+                return prop;
+            }
         } catch (IOException | IllegalArgumentException ex) {
             return null;
         }
     }
 
-    public String getPropertyValue(String key) {
-        if (properties != null) {
-            return properties.getProperty(key);
+    private long getLastModifiedFromClasspath() {
+        URL url = this.getClass().getClassLoader().getResource(PROPERTIES_FILENAME);
+        if (url == null) return 0;
+        try {
+            URLConnection connection = url.openConnection();
+            connection.setUseCaches(false);
+            long modified = connection.getLastModified();
+            connection.getInputStream().close();
+            return modified;
+        } catch (IOException ex) {
+            return 0;
         }
-        return null;
+    }
+
+    public String getPropertyValue(String key) {
+        return getConfiguration().getProperty(key);
     }
 
     public List<String> getListPropertyValue(String key) {
@@ -0,0 +1,53 @@
+package ru.sap.po.mapping.hrmd.router.lookup;
+
+import java.util.Objects;
+
+/**
+ * Identifier of Integrated Configuration object: sender component, interface name and namespace
+ * as they come in <code>InputHeader</code> of a message.
+ */
+public final class IcoKey {
+
+	private final String senderComponent;
+	private final String interfaceName;
+	private final String interfaceNamespace;
+
+	public IcoKey(String senderComponent, String interfaceName, String interfaceNamespace) {
+		this.senderComponent = senderComponent;
+		this.interfaceName = interfaceName;
+		this.interfaceNamespace = interfaceNamespace;
+	}
+
+	public String getSenderComponent() {
+		return senderComponent;
+	}
+
+	public String getInterfaceName() {
+		return interfaceName;
+	}
+
+	public String getInterfaceNamespace() {
+		return interfaceNamespace;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof IcoKey)) return false;
+		IcoKey other = (IcoKey) o;
+		return Objects.equals(senderComponent, other.senderComponent)
+				&& Objects.equals(interfaceName, other.interfaceName)
+				&& Objects.equals(interfaceNamespace, other.interfaceNamespace);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(senderComponent, interfaceName, interfaceNamespace);
+	}
+
+	@Override
+	public String toString() {
+		return senderComponent + "|" + interfaceName + "|" + interfaceNamespace;
+	}
+
+}
@@ -0,0 +1,262 @@
+package ru.sap.po.mapping.hrmd.router.lookup;
+
+import com.sap.aii.mapping.lookup.LookupException;
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.metrics.RouterMetrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process-wide cache of 'BUKRS'-'SystemID' pairs, which were read from <code>MappingParamters</code>
+ * of Integrated Configuration objects with <tt>IntegratedConfiguration750In</tt> lookup.
+ *
+ * Entries are fresh during "lookup.cache.ttl.seconds" after loading. After that and during
+ * "lookup.cache.stale.seconds" entry is stale: the first message that sees it performs
+ * lookup again, while all other messages get stale pairs without waiting. If such refresh fails,
+ * stale pairs are used as well. Entries older than both periods are loaded synchronously.
+ *
+ * Cache keeps at most "lookup.cache.max.entries" entries, least recently used entries are evicted first.
+ * Cache is disabled, if TTL is 0.
+ *
+ * Concurrent loads of the same object are coalesced, even if cache is disabled: the first message
+ * performs lookup, other messages wait for its result instead of calling the service again.
+ *
+ * Successfully loaded pairs are saved to {@link IcoReceiversSnapshot}, if it's enabled. Entries of snapshot
+ * are used with their load time, when object is requested for the first time after restart, and are
+ * returned instead of failed lookup result. Such {@link Result} is marked, so caller may report it.
+ */
+public class IcoReceiversCache {
+
+	/**
+	 * Loads 'BUKRS'-'SystemID' pairs of Integrated Configuration object.
+	 */
+	public interface Loader {
+
+		/**
+		 * @return {@link Map} of pairs or {@code null}, if lookup did not return valid answer
+		 * @throws LookupException if lookup fails
+		 */
+		Map<String, String> load() throws LookupException;
+	}
+
+	/**
+	 * Pairs of Integrated Configuration object with their origin.
+	 */
+	public static final class Result {
+		private final Map<String, String> pairs;
+		private final long loadedAt;
+		private final boolean snapshot;
+
+		private Result(Map<String, String> pairs, long loadedAt, boolean snapshot) {
+			this.pairs = pairs;
+			this.loadedAt = loadedAt;
+			this.snapshot = snapshot;
+		}
+
+		/**
+		 * @return unmodifiable {@link Map} of 'BUKRS'-'SystemID' pairs
+		 */
+		public Map<String, String> getPairs() {
+			return pairs;
+		}
+
+		/**
+		 * @return time in milliseconds, when pairs were loaded
+		 */
+		public long getLoadedAt() {
+			return loadedAt;
+		}
+
+		/**
+		 * @return {@code true}, if lookup failed or did not return valid answer and pairs were taken
+		 * from {@link IcoReceiversSnapshot} instead
+		 */
+		public boolean isSnapshot() {
+			return snapshot;
+		}
+	}
+
+	private static final IcoReceiversCache INSTANCE = new IcoReceiversCache();
+
+	private final Map<IcoKey, CachedPairs> entries = new LinkedHashMap<IcoKey, CachedPairs>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IcoKey, CachedPairs> eldest) {
+			return size() > RouterConfiguration.getCurrent().getLookupCacheMaxEntries();
+		}
+	};
+
+	/**
+	 * Loads in progress, shared by all messages that need pairs of the same object.
+	 */
+	private final ConcurrentMap<IcoKey, CompletableFuture<Result>> loading = new ConcurrentHashMap<>();
+
+	private IcoReceiversCache() {
+	}
+
+	public static IcoReceiversCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Method returns pairs of given Integrated Configuration object from cache
+	 * or loads them with given {@link Loader}.
+	 *
+	 * @param key    {@link IcoKey} of Integrated Configuration object
+	 * @param loader {@link Loader} which performs lookup
+	 *
+	 * @return {@link Result} with pairs or {@code null}, if lookup did not return valid answer and there is no snapshot
+	 * @throws LookupException if synchronous lookup fails and there is no snapshot
+	 */
+	public Result get(IcoKey key, Loader loader) throws LookupException {
+		RouterConfiguration configuration = RouterConfiguration.getCurrent();
+		long ttlMillis = configuration.getLookupCacheTtlMillis();
+		long staleMillis = configuration.getLookupCacheStaleMillis();
+
+		if (ttlMillis <= 0) return load(key, loader, false);
+
+		long now = System.currentTimeMillis();
+		CachedPairs entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry == null) entry = restore(key, now, ttlMillis + staleMillis);
+		}
+
+		if (entry != null) {
+			if (now < entry.result.loadedAt + ttlMillis) {
+				RouterMetrics.getInstance().lookupCacheHit();
+				return entry.result;
+			}
+
+			if (now < entry.result.loadedAt + ttlMillis + staleMillis) {
+				// Only one message refreshes stale entry, others get stale pairs immediately
+				if (!entry.refreshing.compareAndSet(false, true)) {
+					RouterMetrics.getInstance().lookupCacheHit();
+					return entry.result;
+				}
+				try {
+					// Stale pairs are newer than snapshot of failed lookup
+					Result result = load(key, loader, true);
+					return result != null && !result.snapshot ? result : entry.result;
+				} catch (LookupException | RuntimeException e) {
+					return entry.result;
+				} finally {
+					entry.refreshing.set(false);
+				}
+			}
+		}
+
+		return load(key, loader, true);
+	}
+
+	/**
+	 * Removes all entries from cache.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	private Result load(IcoKey key, Loader loader, boolean store) throws LookupException {
+		CompletableFuture<Result> own = new CompletableFuture<>();
+		CompletableFuture<Result> shared = loading.putIfAbsent(key, own);
+		if (shared != null) {
+			RouterMetrics.getInstance().lookupCoalesced();
+			return await(shared);
+		}
+
+		try {
+			Map<String, String> pairs = unmodifiable(loader.load());
+			Result result;
+			if (pairs != null) {
+				long now = System.currentTimeMillis();
+				IcoReceiversSnapshot.getInstance().update(key, pairs, now);
+				result = new Result(pairs, now, false);
+				if (store) {
+					CachedPairs entry = new CachedPairs(result);
+					synchronized (entries) {
+						entries.put(key, entry);
+					}
+				}
+			} else {
+				result = getFallback(key);
+			}
+			own.complete(result);
+			return result;
+		} catch (LookupException | RuntimeException e) {
+			Result fallback = getFallback(key);
+			if (fallback == null) {
+				own.completeExceptionally(e);
+				throw e;
+			}
+			own.complete(fallback);
+			return fallback;
+		} catch (Error e) {
+			own.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, own);
+		}
+	}
+
+	/**
+	 * Puts pairs of snapshot into cache, if they are not older than given age.
+	 *
+	 * @return restored entry or {@code null}
+	 */
+	private CachedPairs restore(IcoKey key, long now, long maxAgeMillis) {
+		IcoReceiversSnapshot snapshot = IcoReceiversSnapshot.getInstance();
+		Map<String, String> pairs = snapshot.getPairs(key);
+		long loadedAt = snapshot.getLoadedAt(key);
+		if (pairs == null || now >= loadedAt + maxAgeMillis) return null;
+
+		CachedPairs entry = new CachedPairs(new Result(pairs, loadedAt, false));
+		entries.put(key, entry);
+		return entry;
+	}
+
+	/**
+	 * @return pairs of snapshot, which replace result of failed lookup, or {@code null}
+	 */
+	private static Result getFallback(IcoKey key) {
+		IcoReceiversSnapshot snapshot = IcoReceiversSnapshot.getInstance();
+		Map<String, String> pairs = snapshot.getPairs(key);
+		return pairs != null ? new Result(pairs, snapshot.getLoadedAt(key), true) : null;
+	}
+
+	private static Result await(CompletableFuture<Result> shared) throws LookupException {
+		try {
+			return shared.get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new LookupException("Interrupted while waiting for ICo lookup of another message");
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof LookupException) throw (LookupException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new LookupException("ICo lookup of another message failed: " + cause);
+		}
+	}
+
+	private static Map<String, String> unmodifiable(Map<String, String> pairs) {
+		return pairs == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(pairs));
+	}
+
+	private static final class CachedPairs {
+		private final Result result;
+		private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+		private CachedPairs(Result result) {
+			this.result = result;
+		}
+	}
+
+}
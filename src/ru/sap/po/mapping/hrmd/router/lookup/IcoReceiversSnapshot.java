@@ -0,0 +1,234 @@
+package ru.sap.po.mapping.hrmd.router.lookup;
+
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent snapshot of the last successfully looked up 'BUKRS'-'SystemID' pairs of each
+ * Integrated Configuration object, kept in "lookup.snapshot.file".
+ *
+ * Snapshot is read once, when class is loaded, and is rewritten on a background
+ * thread after each successful lookup. {@link IcoReceiversCache} uses it to start with pairs loaded before
+ * restart, and as a fallback, when lookup fails, times out or doesn't return valid answer.
+ *
+ * File format (big-endian): magic "HRIC", format version (short), number of objects (int), then per object:
+ * load time (long, epoch millis), sender component, interface name, interface namespace, number of pairs (int)
+ * and pairs. Strings are UTF-8 bytes prefixed by length (unsigned short). File ends with CRC32 (int) of all
+ * previous bytes. File of other format version or with wrong checksum is ignored.
+ */
+public class IcoReceiversSnapshot {
+
+	private static final int MAGIC = 0x48524943;
+	private static final short FORMAT_VERSION = 1;
+
+	private static final IcoReceiversSnapshot INSTANCE = new IcoReceiversSnapshot(RouterConfiguration.getCurrent().getLookupSnapshotFile());
+
+	private final Path file;
+
+	private final Map<IcoKey, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Objects which pairs are never saved, e.g. synthetic object of warm-up.
+	 */
+	private final Set<IcoKey> excluded = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Set, when entries were changed and write of file is scheduled.
+	 */
+	private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+	private ExecutorService writer;
+
+	private IcoReceiversSnapshot(String file) {
+		this.file = file == null || file.trim().isEmpty() ? null : Paths.get(file.trim());
+		if (this.file != null && Files.isRegularFile(this.file)) read();
+	}
+
+	public static IcoReceiversSnapshot getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return {@code true}, if snapshot file is configured
+	 */
+	public boolean isEnabled() {
+		return file != null;
+	}
+
+	/**
+	 * @param key {@link IcoKey} of Integrated Configuration object
+	 *
+	 * @return unmodifiable {@link Map} of 'BUKRS'-'SystemID' pairs from snapshot or {@code null}
+	 */
+	public Map<String, String> getPairs(IcoKey key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.pairs;
+	}
+
+	/**
+	 * @param key {@link IcoKey} of Integrated Configuration object
+	 *
+	 * @return time, when pairs of object were looked up, or 0, if snapshot has no pairs
+	 */
+	public long getLoadedAt(IcoKey key) {
+		Entry entry = entries.get(key);
+		return entry == null ? 0 : entry.loadedAt;
+	}
+
+	/**
+	 * Remembers successfully looked up pairs and schedules write of snapshot file.
+	 *
+	 * @param key      {@link IcoKey} of Integrated Configuration object
+	 * @param pairs    unmodifiable {@link Map} of 'BUKRS'-'SystemID' pairs
+	 * @param loadedAt time of lookup
+	 */
+	public void update(IcoKey key, Map<String, String> pairs, long loadedAt) {
+		if (file == null || excluded.contains(key)) return;
+		entries.put(key, new Entry(pairs, loadedAt));
+		if (dirty.compareAndSet(false, true)) getWriter().execute(this::write);
+	}
+
+	/**
+	 * @param key {@link IcoKey} of Integrated Configuration object, which pairs must not be saved
+	 */
+	public void exclude(IcoKey key) {
+		excluded.add(key);
+	}
+
+	private synchronized ExecutorService getWriter() {
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "hrmd-router-snapshot");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return writer;
+	}
+
+	private void read() {
+		try {
+			// Small file is read into heap, mapped buffer would stay mapped until it is garbage collected
+			byte[] data = Files.readAllBytes(file);
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			if (buffer.remaining() < 14 || buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) return;
+
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, data.length - 4);
+			if ((int) crc.getValue() != buffer.getInt(data.length - 4)) return;
+
+			Map<IcoKey, Entry> read = new LinkedHashMap<>();
+			int objects = buffer.getInt();
+			for (int i = 0; i < objects; i++) {
+				long loadedAt = buffer.getLong();
+				IcoKey key = new IcoKey(getString(buffer), getString(buffer), getString(buffer));
+				int count = buffer.getInt();
+				Map<String, String> pairs = new LinkedHashMap<>();
+				for (int j = 0; j < count; j++) pairs.put(getString(buffer), getString(buffer));
+				read.put(key, new Entry(Collections.unmodifiableMap(pairs), loadedAt));
+			}
+			entries.putAll(read);
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			// Snapshot is only an optimization - mapping works without it
+		}
+	}
+
+	private void write() {
+		dirty.set(false);
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(1024);
+			buffer.putInt(MAGIC).putShort(FORMAT_VERSION);
+			Map<IcoKey, Entry> current = new LinkedHashMap<>(entries);
+			buffer.putInt(current.size());
+			for (Map.Entry<IcoKey, Entry> object : current.entrySet()) {
+				IcoKey key = object.getKey();
+				buffer = ensure(buffer, 8);
+				buffer.putLong(object.getValue().loadedAt);
+				buffer = putString(buffer, key.getSenderComponent());
+				buffer = putString(buffer, key.getInterfaceName());
+				buffer = putString(buffer, key.getInterfaceNamespace());
+				Map<String, String> pairs = object.getValue().pairs;
+				buffer = ensure(buffer, 4);
+				buffer.putInt(pairs.size());
+				for (Map.Entry<String, String> pair : pairs.entrySet()) {
+					buffer = putString(buffer, pair.getKey());
+					buffer = putString(buffer, pair.getValue());
+				}
+			}
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), 0, buffer.position());
+			buffer = ensure(buffer, 4);
+			buffer.putInt((int) crc.getValue());
+			buffer.flip();
+
+			if (file.getParent() != null) Files.createDirectories(file.getParent());
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) channel.write(buffer);
+				channel.force(true);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException amnse) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException | RuntimeException e) {
+			// Snapshot is written again after next successful lookup
+		}
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static ByteBuffer putString(ByteBuffer buffer, String value) {
+		byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xFFFF) throw new IllegalArgumentException("String is too long for snapshot: " + bytes.length);
+		buffer = ensure(buffer, 2 + bytes.length);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+		return buffer;
+	}
+
+	private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+		if (buffer.remaining() >= bytes) return buffer;
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		buffer.flip();
+		larger.put(buffer);
+		return larger;
+	}
+
+	private static final class Entry {
+		private final Map<String, String> pairs;
+		private final long loadedAt;
+
+		private Entry(Map<String, String> pairs, long loadedAt) {
+			this.pairs = pairs;
+			this.loadedAt = loadedAt;
+		}
+	}
+
+}
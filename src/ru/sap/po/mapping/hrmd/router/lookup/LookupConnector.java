@@ -0,0 +1,27 @@
+package ru.sap.po.mapping.hrmd.router.lookup;
+
+import com.sap.aii.mapping.lookup.LookupException;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
+
+import java.io.InputStream;
+
+/**
+ * Performs synchronous call of a service through Communication Channel, configured in Integration Directory.
+ *
+ * Default implementation is {@link SapLookupConnector}, which uses SAP PO lookup API. Other implementations
+ * make it possible to run mapping program outside of SAP PO runtime, e.g. in load tests.
+ */
+public interface LookupConnector {
+
+	/**
+	 * @param service Communication Component name of SAP PO itself
+	 * @param channel Communication Channel name
+	 * @param request UTF-8 encoded XML request payload
+	 * @param trace   {@link RouterTrace} of current message
+	 *
+	 * @return {@link InputStream} with response payload or {@code null}, if call did not return valid answer
+	 * @throws LookupException if call fails
+	 */
+	InputStream call(String service, String channel, byte[] request, RouterTrace trace) throws LookupException;
+
+}
@@ -0,0 +1,88 @@
+package ru.sap.po.mapping.hrmd.router.lookup;
+
+import com.sap.aii.mapping.lookup.Channel;
+import com.sap.aii.mapping.lookup.LookupException;
+import com.sap.aii.mapping.lookup.LookupService;
+import com.sap.aii.mapping.lookup.SystemAccessor;
+import com.sap.aii.mapping.lookup.XmlPayload;
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LookupConnector} that calls service with SAP PO {@link LookupService}.
+ *
+ * Call is performed in mapping thread. At most "lookup.max.concurrent.calls" calls are performed
+ * at the same time by all mapping instances, messages wait for a free slot at most "lookup.slot.timeout.millis".
+ * Timeout of the call itself is configured in lookup channel. {@link SystemAccessor} is always closed
+ * and slot is released, when call is done or fails.
+ */
+public class SapLookupConnector implements LookupConnector {
+
+	private static final Semaphore CALL_SLOTS = new Semaphore(
+			Math.max(1, RouterConfiguration.getCurrent().getLookupMaxConcurrentCalls()));
+
+	@Override
+	public InputStream call(String service, String channel, byte[] request, RouterTrace trace)
+			throws LookupException {
+
+		XmlPayload xmlRequest;
+
+		// Open ByteArrayInputStream from request payload
+		try (InputStream is = new ByteArrayInputStream(request)) {
+			// Convert ByteArrayInputStream to SAP XmlPayload type, which is necessary to perform lookup request
+			xmlRequest = LookupService.getXmlPayload(is);
+		} catch (IOException ioe) {
+			trace.warning("Encountered error during String to XmlPayload conversion while lookup ", ioe);
+			return null;
+		}
+
+		// Get lookup channel instance that provides access to the service
+		Channel lookupChannel = LookupService.getChannel(service, channel);
+
+		if (lookupChannel == null) {
+			trace.warning("Could not get Communication Channel to perform ICo lookup, terminating.");
+			return null;
+		}
+
+		long timeoutMillis = RouterConfiguration.getCurrent().getLookupSlotTimeoutMillis();
+
+		// Wait for a free call slot, so lookup channel is not flooded with requests
+		try {
+			if (!CALL_SLOTS.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				trace.warning("All lookup call slots are busy for " + timeoutMillis + " ms, can not perform ICo lookup.");
+				return null;
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			trace.warning("Interrupted while waiting for lookup call slot ", ie);
+			return null;
+		}
+
+		// Perform SOAP service call and clean up after done
+		XmlPayload xmlResponse;
+		try {
+			SystemAccessor sa = LookupService.getSystemAccessor(lookupChannel);
+			try {
+				xmlResponse = (XmlPayload) sa.call(xmlRequest);
+			} finally {
+				sa.close();
+			}
+		} finally {
+			CALL_SLOTS.release();
+		}
+
+		if (xmlResponse == null) {
+			trace.warning("Lookup did not return valid answer, can not collect all possible receiver systems.");
+			return null;
+		}
+
+		return xmlResponse.getContent();
+	}
+
+}
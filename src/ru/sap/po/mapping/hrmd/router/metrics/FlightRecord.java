@@ -0,0 +1,190 @@
+package ru.sap.po.mapping.hrmd.router.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Summary of processing of a single message, kept by {@link FlightRecorder}, if message was slow.
+ *
+ * Record is filled by the thread that processes message and is published to {@link FlightRecorder}
+ * only after it's finished. When recorder is disabled, all messages share {@link #DISABLED} record,
+ * which ignores all data, so callers never check if recording is enabled.
+ */
+public final class FlightRecord {
+
+	/**
+	 * Outcome of lookup of all possible receivers of ICo object.
+	 */
+	public enum Lookup {
+		NOT_REQUIRED, DONE, PREFETCHED, SNAPSHOT, FAILED
+	}
+
+	/**
+	 * Shared record of messages that are not recorded.
+	 */
+	public static final FlightRecord DISABLED = new FlightRecord(null, false);
+
+	private static final int MAX_PHASES = 16;
+
+	private final boolean enabled;
+	private final String messageId;
+	private final long startedAt = System.currentTimeMillis();
+	private final long started = System.nanoTime();
+	private long totalNanos;
+	private long payloadBytes;
+	private long objects;
+	private long segmentHits;
+	private Lookup lookup = Lookup.NOT_REQUIRED;
+	private int receivers;
+	private String[] phaseNames;
+	private long[] phaseNanos;
+	private int phases;
+
+	FlightRecord(String messageId, boolean enabled) {
+		this.messageId = messageId;
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Adds duration of finished phase, durations of phases with the same name are summed up.
+	 */
+	public void phase(String name, long nanos) {
+		if (!enabled) return;
+		if (phaseNames == null) {
+			phaseNames = new String[MAX_PHASES];
+			phaseNanos = new long[MAX_PHASES];
+		}
+		for (int i = 0; i < phases; i++) {
+			if (phaseNames[i].equals(name)) {
+				phaseNanos[i] += nanos;
+				return;
+			}
+		}
+		if (phases == MAX_PHASES) return;
+		phaseNames[phases] = name;
+		phaseNanos[phases++] = nanos;
+	}
+
+	public void objects(long count) {
+		if (enabled) objects += count;
+	}
+
+	public void segmentHits(long count) {
+		if (enabled) segmentHits += count;
+	}
+
+	public void lookup(Lookup outcome) {
+		if (enabled) lookup = outcome;
+	}
+
+	public void receivers(int count) {
+		if (enabled) receivers = count;
+	}
+
+	/**
+	 * @param is {@link InputStream} of message payload
+	 *
+	 * @return stream which adds read bytes to payload size of record or given stream, if record is disabled
+	 */
+	public InputStream countPayload(InputStream is) {
+		return enabled ? new CountingInputStream(is) : is;
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Finishes record, called by {@link FlightRecorder}.
+	 *
+	 * @return total duration of message processing
+	 */
+	long finish() {
+		totalNanos = System.nanoTime() - started;
+		return totalNanos;
+	}
+
+	public String getMessageId() {
+		return messageId;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public long getPayloadBytes() {
+		return payloadBytes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date(startedAt)))
+				.append(" messageId=").append(messageId)
+				.append(" total=").append(String.format("%.3f", totalNanos / 1e6)).append("ms")
+				.append(" payloadBytes=").append(payloadBytes)
+				.append(" objects=").append(objects)
+				.append(" segmentHits=").append(segmentHits)
+				.append(" lookup=").append(lookup)
+				.append(" receivers=").append(receivers)
+				.append(" phases=[");
+		for (int i = 0; i < phases; i++) {
+			if (i > 0) sb.append(", ");
+			sb.append(phaseNames[i]).append('=').append(String.format("%.3f", phaseNanos[i] / 1e6)).append("ms");
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Counts bytes read from payload, bytes read again after {@link #reset()} are not counted twice.
+	 */
+	private final class CountingInputStream extends FilterInputStream {
+		private long count, mark;
+
+		private CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) count(1);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) count(n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			if (skipped > 0) count(skipped);
+			return skipped;
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			super.mark(readlimit);
+			mark = count;
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			super.reset();
+			count = mark;
+		}
+
+		private void count(long n) {
+			count += n;
+			if (count > payloadBytes) payloadBytes = count;
+		}
+	}
+
+}
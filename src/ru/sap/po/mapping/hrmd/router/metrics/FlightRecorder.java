@@ -0,0 +1,122 @@
+package ru.sap.po.mapping.hrmd.router.metrics;
+
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ring buffer of {@link FlightRecord}s of messages, which processing took longer than
+ * "recorder.threshold.millis". Keeps last "recorder.capacity" slow messages, so tail latency
+ * incidents can be analyzed afterwards with {@link FlightRecorderMXBean} without full trace.
+ *
+ * Records are filled without locks by message threads, publishing of slow record is a single
+ * atomic write. Recorder is disabled, if threshold is 0. Capacity is read once, on the first use.
+ */
+public final class FlightRecorder implements FlightRecorderMXBean {
+
+	public static final String OBJECT_NAME = "ru.sap.po.mapping.hrmd.router:type=FlightRecorder";
+
+	private static final FlightRecorder INSTANCE =
+			new FlightRecorder(Math.max(1, RouterConfiguration.getCurrent().getRecorderCapacity()));
+
+	static {
+		INSTANCE.register();
+	}
+
+	private final AtomicReferenceArray<FlightRecord> records;
+	private final AtomicLong recorded = new AtomicLong();
+
+	private FlightRecorder(int capacity) {
+		this.records = new AtomicReferenceArray<>(capacity);
+	}
+
+	public static FlightRecorder getInstance() {
+		return INSTANCE;
+	}
+
+	private void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) server.unregisterMBean(name);
+			server.registerMBean(this, name);
+		} catch (JMException | SecurityException e) {
+			// Records are still available with getInstance()
+		}
+	}
+
+	/**
+	 * Starts record of message.
+	 *
+	 * @param messageId     message ID from <code>InputHeader</code>
+	 * @param configuration {@link RouterConfiguration} snapshot of message
+	 *
+	 * @return new {@link FlightRecord} or {@link FlightRecord#DISABLED}, if recorder is disabled
+	 * or records of current thread are ignored by {@link RouterMetrics}, e.g. during warm-up
+	 */
+	public FlightRecord start(String messageId, RouterConfiguration configuration) {
+		if (configuration.getRecorderThresholdMillis() <= 0 || RouterMetrics.getInstance().isIgnored()) {
+			return FlightRecord.DISABLED;
+		}
+		return new FlightRecord(messageId, true);
+	}
+
+	/**
+	 * Finishes record of message and keeps it, if message was slow.
+	 *
+	 * @param record        {@link FlightRecord} of message
+	 * @param configuration {@link RouterConfiguration} snapshot of message
+	 *
+	 * @return {@code true}, if message was slow and record is kept
+	 */
+	public boolean finish(FlightRecord record, RouterConfiguration configuration) {
+		if (!record.isEnabled()) return false;
+		if (record.finish() < configuration.getRecorderThresholdMillis() * 1000000) return false;
+
+		long sequence = recorded.getAndIncrement();
+		records.set((int) (sequence % records.length()), record);
+		return true;
+	}
+
+	@Override
+	public String[] getSlowMessages() {
+		return Arrays.stream(snapshot()).map(FlightRecord::toString).toArray(String[]::new);
+	}
+
+	@Override
+	public long getRecordedMessages() {
+		return recorded.get();
+	}
+
+	@Override
+	public String dump() {
+		StringBuilder sb = new StringBuilder();
+		for (String line : getSlowMessages()) sb.append(line).append('\n');
+		return sb.toString();
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < records.length(); i++) records.set(i, null);
+	}
+
+	private FlightRecord[] snapshot() {
+		int capacity = records.length();
+		long next = recorded.get();
+		List<FlightRecord> list = new ArrayList<>(capacity);
+		for (long i = Math.max(0, next - capacity); i < next; i++) {
+			FlightRecord record = records.get((int) (i % capacity));
+			if (record != null && !list.contains(record)) list.add(record);
+		}
+		return list.toArray(new FlightRecord[0]);
+	}
+
+}
@@ -0,0 +1,29 @@
+package ru.sap.po.mapping.hrmd.router.metrics;
+
+/**
+ * JMX interface of {@link FlightRecorder}, registered as
+ * "ru.sap.po.mapping.hrmd.router:type=FlightRecorder".
+ */
+public interface FlightRecorderMXBean {
+
+	/**
+	 * @return summaries of recorded slow messages, oldest first
+	 */
+	String[] getSlowMessages();
+
+	/**
+	 * @return number of slow messages recorded since start, including overwritten ones
+	 */
+	long getRecordedMessages();
+
+	/**
+	 * @return summaries of recorded slow messages, one per line, oldest first
+	 */
+	String dump();
+
+	/**
+	 * Removes all recorded messages.
+	 */
+	void clear();
+
+}
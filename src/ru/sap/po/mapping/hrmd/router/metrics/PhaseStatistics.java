@@ -0,0 +1,56 @@
+package ru.sap.po.mapping.hrmd.router.metrics;
+
+/**
+ * Snapshot of latency histogram of one processing phase, exposed through {@link RouterMetricsMXBean}.
+ */
+public final class PhaseStatistics {
+
+	private static final double NANOS_IN_MILLI = 1e6;
+
+	private final long count;
+	private final double meanMillis;
+	private final double p50Millis;
+	private final double p90Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+
+	PhaseStatistics(Histogram nanos) {
+		this.count = nanos.getCount();
+		this.meanMillis = nanos.getMean() / NANOS_IN_MILLI;
+		this.p50Millis = nanos.getPercentile(50) / NANOS_IN_MILLI;
+		this.p90Millis = nanos.getPercentile(90) / NANOS_IN_MILLI;
+		this.p99Millis = nanos.getPercentile(99) / NANOS_IN_MILLI;
+		this.maxMillis = nanos.getMax() / NANOS_IN_MILLI;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public double getP90Millis() {
+		return p90Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%.3f ms, p50=%.3f ms, p90=%.3f ms, p99=%.3f ms, max=%.3f ms",
+				count, meanMillis, p50Millis, p90Millis, p99Millis, maxMillis);
+	}
+
+}
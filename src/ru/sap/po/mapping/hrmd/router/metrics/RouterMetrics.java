@@ -0,0 +1,226 @@
+package ru.sap.po.mapping.hrmd.router.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and per-phase latency histograms of mapping programs.
+ *
+ * Metrics are recorded regardless of trace level: each finished {@link ru.sap.po.mapping.hrmd.router.trace.RouterTrace.Phase}
+ * adds its duration to histogram of its name. Recording doesn't lock and doesn't allocate after the first
+ * message. Metrics are exposed as {@link RouterMetricsMXBean}, registered once per classloader - MBean of
+ * previous deployment of mapping program is replaced.
+ */
+public final class RouterMetrics implements RouterMetricsMXBean {
+
+	public static final String OBJECT_NAME = "ru.sap.po.mapping.hrmd.router:type=RouterMetrics";
+
+	private static final RouterMetrics INSTANCE = new RouterMetrics();
+
+	static {
+		INSTANCE.register();
+	}
+
+	private final ConcurrentMap<String, Histogram> phases = new ConcurrentHashMap<>();
+	private final LongAdder messages = new LongAdder();
+	private final LongAdder objectsScanned = new LongAdder();
+	private final LongAdder segmentHits = new LongAdder();
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder lookupCalls = new LongAdder();
+	private final LongAdder lookupCacheHits = new LongAdder();
+	private final LongAdder lookupsCoalesced = new LongAdder();
+	private final LongAdder routingResultCacheHits = new LongAdder();
+	private final LongAdder lookupSnapshotFallbacks = new LongAdder();
+	private final Histogram receivers = new Histogram();
+
+	/**
+	 * Thread, which records are ignored, e.g. thread of warm-up, or {@code null}.
+	 */
+	private volatile Thread ignoredThread;
+
+	private volatile String warmUpStatus = "Not started";
+
+	private RouterMetrics() {
+	}
+
+	public static RouterMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	private void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) server.unregisterMBean(name);
+			server.registerMBean(this, name);
+		} catch (JMException | SecurityException e) {
+			// Metrics are still recorded and available with getInstance()
+		}
+	}
+
+	/**
+	 * @param thread thread, which records must be ignored, or {@code null} to record all threads
+	 */
+	public void ignoreThread(Thread thread) {
+		ignoredThread = thread;
+	}
+
+	public void warmUpStatus(String status) {
+		warmUpStatus = status;
+	}
+
+	/**
+	 * @return {@code true}, if records of current thread are ignored
+	 */
+	public boolean isIgnored() {
+		Thread thread = ignoredThread;
+		return thread != null && thread == Thread.currentThread();
+	}
+
+	public void recordPhase(String phase, long nanos) {
+		if (isIgnored()) return;
+		Histogram histogram = phases.get(phase);
+		if (histogram == null) histogram = phases.computeIfAbsent(phase, p -> new Histogram());
+		histogram.record(nanos);
+	}
+
+	public void message() {
+		if (isIgnored()) return;
+		messages.increment();
+	}
+
+	public void objectsScanned(long count) {
+		if (isIgnored()) return;
+		objectsScanned.add(count);
+	}
+
+	public void segmentHits(long count) {
+		if (isIgnored()) return;
+		segmentHits.add(count);
+	}
+
+	public void lookup() {
+		if (isIgnored()) return;
+		lookups.increment();
+	}
+
+	public void lookupCall() {
+		if (isIgnored()) return;
+		lookupCalls.increment();
+	}
+
+	public void lookupCacheHit() {
+		if (isIgnored()) return;
+		lookupCacheHits.increment();
+	}
+
+	public void lookupCoalesced() {
+		if (isIgnored()) return;
+		lookupsCoalesced.increment();
+	}
+
+	public void lookupSnapshotFallback() {
+		if (isIgnored()) return;
+		lookupSnapshotFallbacks.increment();
+	}
+
+	public void routingResultCacheHit() {
+		if (isIgnored()) return;
+		routingResultCacheHits.increment();
+	}
+
+	public void receivers(int count) {
+		if (isIgnored()) return;
+		receivers.record(count);
+	}
+
+	@Override
+	public long getMessages() {
+		return messages.sum();
+	}
+
+	@Override
+	public long getObjectsScanned() {
+		return objectsScanned.sum();
+	}
+
+	@Override
+	public long getSegmentHits() {
+		return segmentHits.sum();
+	}
+
+	@Override
+	public long getLookups() {
+		return lookups.sum();
+	}
+
+	@Override
+	public long getLookupCalls() {
+		return lookupCalls.sum();
+	}
+
+	@Override
+	public long getLookupCacheHits() {
+		return lookupCacheHits.sum();
+	}
+
+	@Override
+	public long getLookupsCoalesced() {
+		return lookupsCoalesced.sum();
+	}
+
+	@Override
+	public long getLookupSnapshotFallbacks() {
+		return lookupSnapshotFallbacks.sum();
+	}
+
+	@Override
+	public long getRoutingResultCacheHits() {
+		return routingResultCacheHits.sum();
+	}
+
+	@Override
+	public double getReceiversPerMessage() {
+		return receivers.getMean();
+	}
+
+	@Override
+	public long getMaxReceiversPerMessage() {
+		return receivers.getMax();
+	}
+
+	@Override
+	public String getWarmUpStatus() {
+		return warmUpStatus;
+	}
+
+	@Override
+	public Map<String, PhaseStatistics> getPhases() {
+		Map<String, PhaseStatistics> statistics = new TreeMap<>();
+		phases.forEach((phase, histogram) -> statistics.put(phase, new PhaseStatistics(histogram)));
+		return statistics;
+	}
+
+	@Override
+	public void reset() {
+		phases.values().forEach(Histogram::reset);
+		messages.reset();
+		objectsScanned.reset();
+		segmentHits.reset();
+		lookups.reset();
+		lookupCalls.reset();
+		lookupCacheHits.reset();
+		lookupsCoalesced.reset();
+		routingResultCacheHits.reset();
+		lookupSnapshotFallbacks.reset();
+		receivers.reset();
+	}
+
+}
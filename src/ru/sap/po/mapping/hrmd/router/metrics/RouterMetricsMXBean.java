@@ -0,0 +1,81 @@
+package ru.sap.po.mapping.hrmd.router.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX interface of {@link RouterMetrics}, registered as
+ * "ru.sap.po.mapping.hrmd.router:type=RouterMetrics".
+ */
+public interface RouterMetricsMXBean {
+
+	/**
+	 * @return number of messages processed by receiver determination
+	 */
+	long getMessages();
+
+	/**
+	 * @return number of <code>E1PLOGI</code> objects scanned
+	 */
+	long getObjectsScanned();
+
+	/**
+	 * @return number of current <code>E1P0001</code> segments, which company codes were routed
+	 */
+	long getSegmentHits();
+
+	/**
+	 * @return number of messages, which required all possible receivers of ICo
+	 */
+	long getLookups();
+
+	/**
+	 * @return number of <tt>IntegratedConfiguration750In</tt> calls
+	 */
+	long getLookupCalls();
+
+	/**
+	 * @return number of lookups served by cache without a call
+	 */
+	long getLookupCacheHits();
+
+	/**
+	 * @return number of lookups, which waited for the same call of another message
+	 */
+	long getLookupsCoalesced();
+
+	/**
+	 * @return number of failed lookups, which were replaced with pairs of persistent snapshot
+	 */
+	long getLookupSnapshotFallbacks();
+
+	/**
+	 * @return number of messages, which reused routing result of previous message with the same routing features
+	 */
+	long getRoutingResultCacheHits();
+
+	/**
+	 * @return average number of receivers per message
+	 */
+	double getReceiversPerMessage();
+
+	/**
+	 * @return maximum number of receivers of a single message
+	 */
+	long getMaxReceiversPerMessage();
+
+	/**
+	 * @return state of warm-up of mapping program after deploy or restart
+	 */
+	String getWarmUpStatus();
+
+	/**
+	 * @return latency statistics by phase name
+	 */
+	Map<String, PhaseStatistics> getPhases();
+
+	/**
+	 * Resets all counters and histograms.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,148 @@
+package ru.sap.po.mapping.hrmd.router.parser;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scan of incoming message in a background thread, so calling thread may do other work while message
+ * is scanned, e.g. ICo lookup as soon as route to all indicator is found.
+ *
+ * Background thread only reads the stream and evaluates routing rules, route to all indicator is signalled
+ * to calling thread, which waits for it in {@link #awaitRouteToAll()}. Calling thread must wait for the end
+ * of scan with {@link #await()} or {@link #join()} before the stream is closed.
+ *
+ * Scans are executed by at most given number of shared daemon threads, pool is created on first use.
+ * If all of them are busy, message is scanned in calling thread.
+ */
+public final class BackgroundScan {
+
+	/**
+	 * Scan of incoming message, which reports route to all indicator to given listener.
+	 */
+	@FunctionalInterface
+	public interface Task {
+		IdocScanResult scan(Runnable routeToAllListener) throws IOException, XMLStreamException;
+	}
+
+	private static volatile ThreadPoolExecutor executor;
+
+	private final CountDownLatch signal = new CountDownLatch(1);
+	private volatile boolean routeToAll;
+	private Future<IdocScanResult> result;
+
+	private BackgroundScan() {
+	}
+
+	/**
+	 * Starts scan of incoming message in a background thread.
+	 *
+	 * @param task    scan of incoming message
+	 * @param threads maximum number of background threads, used when pool is created
+	 *
+	 * @return started {@link BackgroundScan}
+	 */
+	public static BackgroundScan start(Task task, int threads) {
+		BackgroundScan scan = new BackgroundScan();
+		scan.result = getExecutor(threads).submit(() -> {
+			try {
+				return task.scan(() -> {
+					scan.routeToAll = true;
+					scan.signal.countDown();
+				});
+			} finally {
+				scan.signal.countDown();
+			}
+		});
+		return scan;
+	}
+
+	/**
+	 * Waits until scanner finds route to all indicator or scan ends.
+	 *
+	 * @return {@code true}, if route to all indicator is found, {@code false}, if scan ended without it
+	 * or waiting was interrupted
+	 */
+	public boolean awaitRouteToAll() {
+		try {
+			signal.await();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return routeToAll;
+	}
+
+	/**
+	 * Waits for the end of scan. Interruption doesn't stop waiting, because stream must not be closed
+	 * while it's read, interrupted status is restored on return.
+	 */
+	public void await() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				result.get();
+				break;
+			} catch (InterruptedException ie) {
+				interrupted = true;
+			} catch (ExecutionException ee) {
+				break;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Waits for the end of scan like {@link #await()} and returns its result.
+	 *
+	 * @return {@link IdocScanResult} of incoming message
+	 * @throws IOException        if reading from stream fails
+	 * @throws XMLStreamException if incoming message is not well-formed XML
+	 */
+	public IdocScanResult join() throws IOException, XMLStreamException {
+		await();
+		try {
+			return result.get();
+		} catch (InterruptedException ie) {
+			// Scan is already finished, so get() doesn't wait
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for background scan", ie);
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof IOException) throw (IOException) cause;
+			if (cause instanceof XMLStreamException) throw (XMLStreamException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IOException("Background scan failed", cause);
+		}
+	}
+
+	private static ThreadPoolExecutor getExecutor(int threads) {
+		ThreadPoolExecutor result = executor;
+		if (result == null) {
+			synchronized (BackgroundScan.class) {
+				result = executor;
+				if (result == null) {
+					executor = result = createExecutor(Math.max(1, threads));
+				}
+			}
+		}
+		return result;
+	}
+
+	private static ThreadPoolExecutor createExecutor(int threads) {
+		AtomicInteger counter = new AtomicInteger();
+		return new ThreadPoolExecutor(0, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "hrmd-router-scan-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+}
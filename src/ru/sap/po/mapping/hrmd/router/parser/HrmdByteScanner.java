@@ -0,0 +1,479 @@
+package ru.sap.po.mapping.hrmd.router.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fast-path scanner of <tt>HRMD_A09</tt> IDOC messages that works directly on raw payload bytes.
+ *
+ * Input is read through a fixed-size buffer, tag names and values of <code>OTYPE</code>, <code>INFTY</code>,
+ * <code>ENDDA</code> and <code>BUKRS</code> are compared as byte ranges, so no objects are created per segment
+ * and {@link String} is created only once for each distinct accepted company code.
+ * Routing semantics are the same as of {@link HrmdStaxScanner}.
+ *
+ * Scanner supports UTF-8 (or US-ASCII) encoded messages only. If it meets something it can't handle
+ * reliably - DTD, other encoding, entity references, CDATA sections or processing instructions inside
+ * routing values, content outside of the single root element or message without closed root element -
+ * it stops with {@link UnsupportedIdocException} and the message must be processed with general XML parser,
+ * which decides if message is well-formed.
+ *
+ * Instances are not thread-safe, but are cheap to create - one per message is expected.
+ */
+public class HrmdByteScanner {
+
+	private static final byte[] E1PLOGI = ascii("E1PLOGI");
+	private static final byte[] E1PITYP = ascii("E1PITYP");
+	private static final byte[] E1P0001 = ascii("E1P0001");
+	private static final byte[] OTYPE = ascii("OTYPE");
+	private static final byte[] INFTY = ascii("INFTY");
+	private static final byte[] ENDDA = ascii("ENDDA");
+	private static final byte[] BUKRS = ascii("BUKRS");
+
+	private static final byte[] PERSON_OBJECT_TYPE = ascii("P");
+	private static final byte[] PERSON_INFO_TYPE = ascii("0001");
+	private static final byte[] LAST_SAP_DAY_ON_EARTH = ascii("99991231");
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_NAME_LENGTH = 64;
+	private static final int MAX_VALUE_LENGTH = 64;
+
+	/**
+	 * Identifiers of elements which values are captured.
+	 */
+	private static final int CAPTURE_NONE = 0, CAPTURE_OTYPE = 1, CAPTURE_INFTY = 2,
+			CAPTURE_ENDDA = 3, CAPTURE_BUKRS = 4;
+
+	private final byte[][] managementInfoTypes;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position, limit;
+	private InputStream in;
+
+	/**
+	 * Number of open elements and indicator that root element was closed.
+	 */
+	private int depth;
+	private boolean rootClosed;
+
+	private final byte[] name = new byte[MAX_NAME_LENGTH];
+	private int nameLength;
+
+	private final byte[] value = new byte[MAX_VALUE_LENGTH];
+	private int valueLength;
+	private int captured = CAPTURE_NONE;
+	private byte[] capturedName;
+
+	private boolean inObject, inInfoType, inTimeDependentSegment;
+	private boolean objectTypeFound, isPersonObject, objectHasManagementInfoType;
+	private boolean infoTypeFound, isPersonInfoType, isManagementInfoType;
+	private boolean endDateFound, isCurrent;
+	private boolean companyCodeFound;
+	private final byte[] companyCode = new byte[MAX_VALUE_LENGTH];
+	private int companyCodeLength;
+
+	/**
+	 * Pool of company codes of current <code>E1PLOGI</code> object, waiting for object type decision.
+	 */
+	private byte[] pending = new byte[1024];
+	private int[] pendingOffsets = new int[128];
+	private int pendingCount, pendingLength, infoTypePendingCount;
+
+	/**
+	 * Company codes which were already accepted - to avoid {@link String} creation for duplicates.
+	 */
+	private final List<byte[]> accepted = new ArrayList<>();
+
+	/**
+	 * Callback of {@link IdocScanResult}, invoked when route to all indicator is set, or {@code null}.
+	 */
+	private Runnable routeToAllListener;
+
+	/**
+	 * @param managementInfoTypes collection of organizational management infotypes
+	 */
+	public HrmdByteScanner(Collection<String> managementInfoTypes) {
+		this.managementInfoTypes = managementInfoTypes.stream()
+				.map(infoType -> infoType.getBytes(StandardCharsets.UTF_8))
+				.toArray(byte[][]::new);
+	}
+
+	/**
+	 * @param routeToAllListener callback invoked as soon as the first object, which routes message
+	 *                           to all receivers, is read - before the whole message is scanned
+	 */
+	public void setRouteToAllListener(Runnable routeToAllListener) {
+		this.routeToAllListener = routeToAllListener;
+	}
+
+	/**
+	 * Method reads the whole incoming message from given {@link InputStream}
+	 * and collects routing data into {@link IdocScanResult}.
+	 *
+	 * @param is {@link InputStream} with <tt>HRMD_A09</tt> XML
+	 *
+	 * @return {@link IdocScanResult} with collected company codes and route to all indicator
+	 * @throws IOException if reading from stream fails
+	 * @throws UnsupportedIdocException if message can't be processed at byte level
+	 */
+	public IdocScanResult scan(InputStream is) throws IOException, UnsupportedIdocException {
+		in = is;
+		position = 0;
+		limit = 0;
+		depth = 0;
+		rootClosed = false;
+
+		IdocScanResult result = new IdocScanResult(routeToAllListener);
+		checkByteOrderMark();
+
+		int b;
+		while ((b = next()) >= 0) {
+			if (b == '<') {
+				readMarkup(result);
+			} else if (captured != CAPTURE_NONE) {
+				appendValue(b);
+			} else if (depth == 0 && b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+				throw new UnsupportedIdocException("Text outside of root element");
+			}
+		}
+		if (!rootClosed) throw new UnsupportedIdocException("Root element is not closed");
+		return result;
+	}
+
+	private void readMarkup(IdocScanResult result) throws IOException, UnsupportedIdocException {
+		int b = nextRequired();
+		if (b == '/') {
+			b = readName(nextRequired());
+			while (b != '>') b = nextRequired();
+			closeElement();
+			endElement(result);
+		} else if (b == '?') {
+			readProcessingInstruction();
+		} else if (b == '!') {
+			readDeclaration();
+		} else {
+			b = readName(b);
+			boolean selfClosing = false;
+			while (b != '>') {
+				if (b == '"' || b == '\'') {
+					int quote = b;
+					while (nextRequired() != quote) { }
+					selfClosing = false;
+				} else {
+					selfClosing = b == '/';
+				}
+				b = nextRequired();
+			}
+			openElement();
+			startElement();
+			if (selfClosing) {
+				closeElement();
+				endElement(result);
+			}
+		}
+	}
+
+	/**
+	 * Reads tag name into {@link #name} buffer starting with given byte.
+	 *
+	 * @return first byte after the name
+	 */
+	private int readName(int b) throws IOException, UnsupportedIdocException {
+		nameLength = 0;
+		while (b != '>' && b != '/' && b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+			// Names longer than buffer can't match any tag of interest, so they're just truncated
+			if (nameLength < MAX_NAME_LENGTH) name[nameLength] = (byte) b;
+			nameLength++;
+			b = nextRequired();
+		}
+		return b;
+	}
+
+	private void openElement() throws UnsupportedIdocException {
+		if (rootClosed) throw new UnsupportedIdocException("Element after root element");
+		depth++;
+	}
+
+	private void closeElement() throws UnsupportedIdocException {
+		if (depth == 0) throw new UnsupportedIdocException("End tag outside of root element");
+		if (--depth == 0) rootClosed = true;
+	}
+
+	private void readProcessingInstruction() throws IOException, UnsupportedIdocException {
+		// Instruction is read into value buffer, so it must not interrupt captured value
+		if (captured != CAPTURE_NONE) {
+			throw new UnsupportedIdocException("Processing instruction inside routing value");
+		}
+		valueLength = 0;
+		int previous = 0, b;
+		while (!((b = nextRequired()) == '>' && previous == '?')) {
+			if (valueLength < MAX_VALUE_LENGTH) value[valueLength++] = (byte) b;
+			previous = b;
+		}
+		// XML declaration - only UTF-8 and US-ASCII encodings are supported
+		String declaration = new String(value, 0, valueLength, StandardCharsets.US_ASCII);
+		if (declaration.startsWith("xml")) {
+			int index = declaration.indexOf("encoding");
+			if (index >= 0) {
+				String encoding = declaration.substring(index + "encoding".length())
+						.replaceAll("^\\s*=\\s*['\"]([^'\"]*).*$", "$1");
+				if (!"UTF-8".equalsIgnoreCase(encoding) && !"US-ASCII".equalsIgnoreCase(encoding)
+						&& !"ASCII".equalsIgnoreCase(encoding)) {
+					throw new UnsupportedIdocException("Unsupported encoding: " + encoding);
+				}
+			}
+		}
+		valueLength = 0;
+	}
+
+	private void readDeclaration() throws IOException, UnsupportedIdocException {
+		int b = nextRequired();
+		if (b == '-') {
+			nextRequired();
+			// Comment - skip until '-->'
+			int previous1 = 0, previous2 = 0;
+			while (!((b = nextRequired()) == '>' && previous1 == '-' && previous2 == '-')) {
+				previous2 = previous1;
+				previous1 = b;
+			}
+		} else if (b == '[') {
+			if (captured != CAPTURE_NONE) {
+				throw new UnsupportedIdocException("CDATA section inside routing value");
+			}
+			if (depth == 0) throw new UnsupportedIdocException("CDATA section outside of root element");
+			// CDATA section outside of routing values - skip until ']]>'
+			int previous1 = 0, previous2 = 0;
+			while (!((b = nextRequired()) == '>' && previous1 == ']' && previous2 == ']')) {
+				previous2 = previous1;
+				previous1 = b;
+			}
+		} else {
+			throw new UnsupportedIdocException("Document type declarations are not supported");
+		}
+	}
+
+	private void startElement() {
+		if (captured != CAPTURE_NONE) return;
+
+		if (!inObject) {
+			if (isName(E1PLOGI)) {
+				inObject = true;
+				objectTypeFound = false;
+				isPersonObject = false;
+				objectHasManagementInfoType = false;
+				pendingCount = 0;
+				pendingLength = 0;
+			}
+			return;
+		}
+
+		if (isName(OTYPE)) {
+			if (!objectTypeFound) capture(CAPTURE_OTYPE, OTYPE);
+		} else if (isName(E1PITYP)) {
+			if (!inInfoType) {
+				inInfoType = true;
+				infoTypeFound = false;
+				isPersonInfoType = false;
+				isManagementInfoType = false;
+				infoTypePendingCount = pendingCount;
+			}
+		} else if (inInfoType) {
+			if (isName(INFTY)) {
+				if (!infoTypeFound) capture(CAPTURE_INFTY, INFTY);
+			} else if (isName(E1P0001)) {
+				if (!inTimeDependentSegment) {
+					inTimeDependentSegment = true;
+					endDateFound = false;
+					isCurrent = false;
+					companyCodeFound = false;
+					companyCodeLength = 0;
+				}
+			} else if (inTimeDependentSegment) {
+				if (isName(ENDDA)) {
+					if (!endDateFound) capture(CAPTURE_ENDDA, ENDDA);
+				} else if (isName(BUKRS)) {
+					if (!companyCodeFound) capture(CAPTURE_BUKRS, BUKRS);
+				}
+			}
+		}
+	}
+
+	private void endElement(IdocScanResult result) {
+		if (captured != CAPTURE_NONE) {
+			if (!isName(capturedName)) return;
+			switch (captured) {
+				case CAPTURE_OTYPE:
+					objectTypeFound = true;
+					isPersonObject = isValue(PERSON_OBJECT_TYPE);
+					break;
+				case CAPTURE_INFTY:
+					infoTypeFound = true;
+					isPersonInfoType = isValue(PERSON_INFO_TYPE);
+					for (byte[] managementInfoType : managementInfoTypes) {
+						if (isValue(managementInfoType)) isManagementInfoType = true;
+					}
+					break;
+				case CAPTURE_ENDDA:
+					endDateFound = true;
+					isCurrent = isValue(LAST_SAP_DAY_ON_EARTH);
+					break;
+				case CAPTURE_BUKRS:
+					companyCodeFound = true;
+					System.arraycopy(value, 0, companyCode, 0, valueLength);
+					companyCodeLength = valueLength;
+					break;
+				default:
+					break;
+			}
+			captured = CAPTURE_NONE;
+			return;
+		}
+
+		if (!inObject) return;
+
+		if (inTimeDependentSegment && isName(E1P0001)) {
+			inTimeDependentSegment = false;
+			if (isCurrent && companyCodeLength > 0) addPending();
+		} else if (inInfoType && isName(E1PITYP)) {
+			inInfoType = false;
+			// Company codes of infotypes other than '0001' are discarded
+			if (!isPersonInfoType) {
+				pendingCount = infoTypePendingCount;
+				pendingLength = pendingCount == 0 ? 0 : pendingOffsets[pendingCount];
+			}
+			if (isManagementInfoType || (!infoTypeFound && managementInfoTypesContainEmpty())) {
+				objectHasManagementInfoType = true;
+			}
+		} else if (isName(E1PLOGI)) {
+			inObject = false;
+			result.countObject();
+			if (isPersonObject) {
+				for (int i = 0; i < pendingCount; i++) accept(i, result);
+			} else if (objectHasManagementInfoType) {
+				result.setRouteToAll();
+			}
+		}
+	}
+
+	private void addPending() {
+		if (pendingLength + companyCodeLength > pending.length) {
+			pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + companyCodeLength));
+		}
+		if (pendingCount + 2 > pendingOffsets.length) {
+			pendingOffsets = Arrays.copyOf(pendingOffsets, pendingOffsets.length * 2);
+		}
+		pendingOffsets[pendingCount] = pendingLength;
+		System.arraycopy(companyCode, 0, pending, pendingLength, companyCodeLength);
+		pendingLength += companyCodeLength;
+		pendingCount++;
+		pendingOffsets[pendingCount] = pendingLength;
+	}
+
+	/**
+	 * Accepts pending company code with given index: {@link String} is created
+	 * only if the same company code wasn't accepted before.
+	 */
+	private void accept(int index, IdocScanResult result) {
+		result.countSegmentHit();
+		int offset = pendingOffsets[index];
+		int length = pendingOffsets[index + 1] - offset;
+		for (byte[] code : accepted) {
+			if (rangeEquals(pending, offset, length, code)) return;
+		}
+		byte[] code = Arrays.copyOfRange(pending, offset, offset + length);
+		accepted.add(code);
+		result.addCompanyCode(new String(code, StandardCharsets.UTF_8));
+	}
+
+	private boolean managementInfoTypesContainEmpty() {
+		for (byte[] managementInfoType : managementInfoTypes) {
+			if (managementInfoType.length == 0) return true;
+		}
+		return false;
+	}
+
+	private void capture(int target, byte[] targetName) {
+		captured = target;
+		capturedName = targetName;
+		valueLength = 0;
+	}
+
+	private void appendValue(int b) throws UnsupportedIdocException {
+		if (b == '&') throw new UnsupportedIdocException("Entity reference inside routing value");
+		if (b == '\r') throw new UnsupportedIdocException("Carriage return inside routing value");
+		if (valueLength == MAX_VALUE_LENGTH) throw new UnsupportedIdocException("Routing value is too long");
+		value[valueLength++] = (byte) b;
+	}
+
+	private void checkByteOrderMark() throws IOException, UnsupportedIdocException {
+		// UTF-8 message starts with BOM or '<', UTF-16 and UTF-32 messages without BOM have zero byte among first four
+		fill(4);
+		for (int i = 0; i < limit && i < 4; i++) {
+			if (buffer[i] == 0) throw new UnsupportedIdocException("Only UTF-8 encoded messages are supported");
+		}
+
+		int b = next();
+		if (b < 0) return;
+		if (b == 0xEF) {
+			if (nextRequired() != 0xBB || nextRequired() != 0xBF) {
+				throw new UnsupportedIdocException("Malformed byte order mark");
+			}
+		} else if (b == 0xFE || b == 0xFF) {
+			throw new UnsupportedIdocException("Only UTF-8 encoded messages are supported");
+		} else {
+			position--;
+		}
+	}
+
+	private boolean isName(byte[] expected) {
+		return nameLength == expected.length && rangeEquals(name, 0, nameLength, expected);
+	}
+
+	private boolean isValue(byte[] expected) {
+		return valueLength == expected.length && rangeEquals(value, 0, valueLength, expected);
+	}
+
+	private static boolean rangeEquals(byte[] source, int offset, int length, byte[] expected) {
+		if (length != expected.length) return false;
+		for (int i = 0; i < length; i++) {
+			if (source[offset + i] != expected[i]) return false;
+		}
+		return true;
+	}
+
+	private int next() throws IOException {
+		if (position == limit) {
+			int read = in.read(buffer, 0, BUFFER_SIZE);
+			if (read <= 0) return -1;
+			position = 0;
+			limit = read;
+		}
+		return buffer[position++] & 0xFF;
+	}
+
+	/**
+	 * Reads from stream into buffer until it has at least given number of bytes or stream ends.
+	 */
+	private void fill(int length) throws IOException {
+		while (limit < length) {
+			int read = in.read(buffer, limit, BUFFER_SIZE - limit);
+			if (read <= 0) return;
+			limit += read;
+		}
+	}
+
+	private int nextRequired() throws IOException, UnsupportedIdocException {
+		int b = next();
+		if (b < 0) throw new UnsupportedIdocException("Unexpected end of message");
+		return b;
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+}
@@ -0,0 +1,200 @@
+package ru.sap.po.mapping.hrmd.router.parser;
+
+import ru.sap.po.mapping.hrmd.router.routing.DecisionTable;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single-pass splitter of <tt>HRMD_A09</tt> IDOC messages into filtered IDOC per receiver system.
+ *
+ * Each <code>E1PLOGI</code> object is buffered while it's read and evaluated by the same routing rules
+ * as in {@link HrmdStaxScanner}. When object ends, it is written to outputs of receiver systems of its
+ * company codes. If message is routed to all receivers, all organizational management objects
+ * (<code>OTYPE</code> other than 'P') are written to every output. Whether message is routed to all
+ * receivers is known only after the whole message is scanned, so it's passed by receiver determination.
+ * Objects, which route message to all receivers themselves, are written to every output in any case.
+ * Control record and other elements outside of objects are written to every output too.
+ *
+ * Outputs are written while message is read, so memory consumption depends only on the size
+ * of a single <code>E1PLOGI</code> object. Elements, attributes and text are written as UTF-8,
+ * comments, processing instructions and whitespace between objects are dropped.
+ *
+ * Instances are not thread-safe, but are cheap to create - one per message is expected.
+ */
+public class HrmdIdocSplitter {
+
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+	private final HrmdStaxScanner scanner;
+
+	/**
+	 * Routing data of current <code>E1PLOGI</code> object.
+	 */
+	private final IdocScanResult objectResult = new IdocScanResult();
+
+	/**
+	 * Content of current object and content outside of objects, not yet written to outputs.
+	 */
+	private final ByteArrayOutputStream objectBytes = new ByteArrayOutputStream(4096);
+	private final ByteArrayOutputStream otherBytes = new ByteArrayOutputStream(512);
+	private final Writer objectWriter = new OutputStreamWriter(objectBytes, StandardCharsets.UTF_8);
+	private final Writer otherWriter = new OutputStreamWriter(otherBytes, StandardCharsets.UTF_8);
+
+	private final Set<OutputStream> targets = new HashSet<>();
+
+	/**
+	 * @param decisionTable compiled routing rules
+	 * @param keyDate       key date of validity checks in 'yyyyMMdd' format
+	 */
+	public HrmdIdocSplitter(DecisionTable decisionTable, String keyDate) {
+		this.scanner = new HrmdStaxScanner(decisionTable, keyDate);
+	}
+
+	/**
+	 * Method reads the whole incoming message from given {@link InputStream} and writes
+	 * filtered IDOC of each receiver system to its {@link OutputStream}.
+	 *
+	 * @param is         {@link InputStream} with <tt>HRMD_A09</tt> XML
+	 * @param receivers  'BUKRS'-'ReceiverSystem' pairs
+	 * @param routeToAll {@code true}, if message is routed to all receivers
+	 * @param outputs    outputs of receiver systems, objects of systems without output are skipped
+	 *
+	 * @return number of objects written to each receiver system output
+	 * @throws XMLStreamException if incoming message is not well-formed XML
+	 * @throws IOException        if output can't be written
+	 */
+	public Map<String, Integer> split(InputStream is, Map<String, String> receivers, boolean routeToAll,
+									  Map<String, OutputStream> outputs) throws XMLStreamException, IOException {
+		Map<String, Integer> objects = new LinkedHashMap<>();
+		outputs.keySet().forEach(systemId -> objects.put(systemId, 0));
+
+		XMLStreamReader reader = HrmdStaxScanner.XML_INPUT_FACTORY.createXMLStreamReader(is);
+		try {
+			boolean inObject = false, firstObject = true, significant = false;
+			otherWriter.write(XML_DECLARATION);
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						String startTag = reader.getLocalName();
+						if (!inObject && "E1PLOGI".equals(startTag)) {
+							// Header before the first object is always written, whitespace between objects is dropped
+							if (firstObject || significant) writeToAll(outputs);
+							otherBytes.reset();
+							inObject = true;
+							firstObject = false;
+							significant = false;
+						}
+						if (!inObject) significant = true;
+						writeStartElement(reader, inObject ? objectWriter : otherWriter);
+						scanner.startElement(startTag);
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						if (!inObject && !reader.isWhiteSpace()) significant = true;
+						writeText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength(),
+								inObject ? objectWriter : otherWriter, false);
+						scanner.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						String endTag = reader.getLocalName();
+						writeEndElement(endTag, inObject ? objectWriter : otherWriter);
+						scanner.endElement(endTag, objectResult);
+						if (inObject && "E1PLOGI".equals(endTag)) {
+							inObject = false;
+							writeObject(receivers, routeToAll, outputs, objects);
+						}
+						break;
+					default:
+						break;
+				}
+			}
+			writeToAll(outputs);
+			otherBytes.reset();
+		} finally {
+			reader.close();
+		}
+		return objects;
+	}
+
+	private void writeObject(Map<String, String> receivers, boolean routeToAll, Map<String, OutputStream> outputs,
+							 Map<String, Integer> objects) throws IOException {
+		objectWriter.flush();
+		targets.clear();
+		boolean toAll = objectResult.isRouteToAll() || routeToAll && !"P".equals(scanner.getObjectType());
+		outputs.forEach((systemId, os) -> {
+			if (toAll || isReceiverOfObject(systemId, receivers)) {
+				if (targets.add(os)) objects.merge(systemId, 1, Integer::sum);
+			}
+		});
+		for (OutputStream os : targets) objectBytes.writeTo(os);
+		objectBytes.reset();
+		objectResult.clear();
+	}
+
+	private boolean isReceiverOfObject(String systemId, Map<String, String> receivers) {
+		for (String companyCode : objectResult.getCompanyCodes()) {
+			if (systemId.equals(receivers.get(companyCode))) return true;
+		}
+		return false;
+	}
+
+	private void writeToAll(Map<String, OutputStream> outputs) throws IOException {
+		otherWriter.flush();
+		for (OutputStream os : outputs.values()) otherBytes.writeTo(os);
+	}
+
+	private static void writeStartElement(XMLStreamReader reader, Writer out) throws IOException {
+		out.write('<');
+		out.write(reader.getLocalName());
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			out.write(' ');
+			out.write(reader.getAttributeLocalName(i));
+			out.write("=\"");
+			String value = reader.getAttributeValue(i);
+			writeText(value.toCharArray(), 0, value.length(), out, true);
+			out.write('"');
+		}
+		out.write('>');
+	}
+
+	private static void writeEndElement(String tag, Writer out) throws IOException {
+		out.write("</");
+		out.write(tag);
+		out.write('>');
+	}
+
+	private static void writeText(char[] chars, int start, int length, Writer out, boolean attribute) throws IOException {
+		int from = start;
+		int end = start + length;
+		for (int i = start; i < end; i++) {
+			String entity;
+			switch (chars[i]) {
+				case '&': entity = "&amp;"; break;
+				case '<': entity = "&lt;"; break;
+				case '>': entity = "&gt;"; break;
+				case '"': entity = attribute ? "&quot;" : null; break;
+				default: entity = null; break;
+			}
+			if (entity == null) continue;
+			out.write(chars, from, i - from);
+			out.write(entity);
+			from = i + 1;
+		}
+		out.write(chars, from, end - from);
+	}
+
+}
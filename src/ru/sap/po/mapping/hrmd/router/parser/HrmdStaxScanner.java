@@ -0,0 +1,268 @@
+package ru.sap.po.mapping.hrmd.router.parser;
+
+import ru.sap.po.mapping.hrmd.router.routing.DecisionTable;
+import ru.sap.po.mapping.hrmd.router.routing.RoutingRule;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass streaming scanner of <tt>HRMD_A09</tt> IDOC messages based on StAX.
+ *
+ * Reads <code>E1PLOGI/OTYPE</code>, <code>E1PITYP/INFTY</code> and fields of infotype segments
+ * referenced by routing rules of {@link DecisionTable} as parsing events and never builds a tree
+ * of the document, so memory consumption depends only on the size of a single <code>E1PLOGI</code>
+ * object, not on the size of the whole payload.
+ *
+ * With default rules produces exactly the same data as DOM processing in mapping program: first
+ * <code>OTYPE</code> of each <code>E1PLOGI</code>, first <code>INFTY</code> of each <code>E1PITYP</code>
+ * and first <code>ENDDA</code> and <code>BUKRS</code> of each <code>E1P0001</code> are taken into account.
+ * Segment conditions are evaluated when segment ends, infotype and object type predicates - when
+ * <code>E1PITYP</code> and <code>E1PLOGI</code> end, so order of elements inside them doesn't matter.
+ *
+ * Instances are not thread-safe, but are cheap to create - one per message is expected.
+ */
+public class HrmdStaxScanner {
+
+	/**
+	 * StAX factory is thread-safe after configuration, so it is shared between all scanners.
+	 */
+	static final XMLInputFactory XML_INPUT_FACTORY = createXMLInputFactory();
+
+	private final DecisionTable decisionTable;
+	private final String keyDate;
+
+	/**
+	 * Text of the element that is captured at the moment.
+	 */
+	private final StringBuilder text = new StringBuilder(16);
+
+	/**
+	 * Rules matched by segments of current <code>E1PITYP</code> and their action values.
+	 */
+	private final List<RoutingRule> infoTypeRules = new ArrayList<>();
+	private final List<String> infoTypeValues = new ArrayList<>();
+
+	/**
+	 * Rules matched by infotypes of current <code>E1PLOGI</code> and their action values.
+	 */
+	private final List<RoutingRule> objectRules = new ArrayList<>();
+	private final List<String> objectValues = new ArrayList<>();
+
+	private boolean inObject, inInfoType;
+	private String objectType, infoTypeCode;
+
+	/**
+	 * Rules of infotype segment being processed or {@code null} and its captured field values.
+	 */
+	private DecisionTable.SegmentRules segmentRules;
+	private String segmentTag;
+	private String[] segmentValues;
+
+	/**
+	 * Name of the element which text is captured at the moment or {@code null}.
+	 */
+	private String capturedTag;
+
+	/**
+	 * Index of captured segment field or -1, if <code>OTYPE</code> or <code>INFTY</code> is captured.
+	 */
+	private int capturedField;
+
+	/**
+	 * Callback of {@link IdocScanResult}, invoked when route to all indicator is set, or {@code null}.
+	 */
+	private Runnable routeToAllListener;
+
+	/**
+	 * @param decisionTable compiled routing rules
+	 * @param keyDate       key date of validity checks in 'yyyyMMdd' format
+	 */
+	public HrmdStaxScanner(DecisionTable decisionTable, String keyDate) {
+		this.decisionTable = decisionTable;
+		this.keyDate = keyDate;
+	}
+
+	/**
+	 * @param routeToAllListener callback invoked as soon as the first object, which routes message
+	 *                           to all receivers, is read - before the whole message is scanned
+	 */
+	public void setRouteToAllListener(Runnable routeToAllListener) {
+		this.routeToAllListener = routeToAllListener;
+	}
+
+	/**
+	 * Method reads the whole incoming message from given {@link InputStream}
+	 * and collects routing data into {@link IdocScanResult}.
+	 *
+	 * @param is {@link InputStream} with <tt>HRMD_A09</tt> XML
+	 *
+	 * @return {@link IdocScanResult} with collected company codes and route to all indicator
+	 * @throws XMLStreamException if incoming message is not well-formed XML
+	 */
+	public IdocScanResult scan(InputStream is) throws XMLStreamException {
+		IdocScanResult result = new IdocScanResult(routeToAllListener);
+		XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(is);
+		try {
+			while (reader.hasNext()) {
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						startElement(reader.getLocalName());
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+						characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						endElement(reader.getLocalName(), result);
+						break;
+					default:
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Handles start of element, used by {@link #scan(InputStream)} and by {@link HrmdIdocSplitter}.
+	 */
+	void startElement(String tag) {
+		if (capturedTag != null) return;
+
+		if (!inObject) {
+			if ("E1PLOGI".equals(tag)) {
+				inObject = true;
+				objectType = null;
+				objectRules.clear();
+				objectValues.clear();
+			}
+			return;
+		}
+
+		if ("OTYPE".equals(tag)) {
+			if (objectType == null) capture(tag, -1);
+		} else if ("E1PITYP".equals(tag)) {
+			if (!inInfoType) {
+				inInfoType = true;
+				infoTypeCode = null;
+				infoTypeRules.clear();
+				infoTypeValues.clear();
+			}
+		} else if (inInfoType) {
+			if ("INFTY".equals(tag)) {
+				if (infoTypeCode == null) capture(tag, -1);
+			} else if (segmentRules != null) {
+				int field = segmentRules.indexOf(tag);
+				if (field >= 0 && segmentValues[field] == null) capture(tag, field);
+			} else {
+				DecisionTable.SegmentRules rules = decisionTable.getSegmentRules(tag);
+				if (rules != null) {
+					segmentRules = rules;
+					segmentTag = tag;
+					segmentValues = new String[rules.getFields().length];
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return <code>OTYPE</code> of the last started <code>E1PLOGI</code> object or {@code null}, if it has no type
+	 */
+	String getObjectType() {
+		return objectType;
+	}
+
+	/**
+	 * Handles text of element.
+	 */
+	void characters(char[] chars, int start, int length) {
+		if (capturedTag != null) text.append(chars, start, length);
+	}
+
+	/**
+	 * Handles end of element. Routing data of <code>E1PLOGI</code> object is added to given result,
+	 * when object ends.
+	 */
+	void endElement(String tag, IdocScanResult result) {
+		if (capturedTag != null) {
+			if (!capturedTag.equals(tag)) return;
+			String value = text.toString();
+			capturedTag = null;
+			if (capturedField >= 0) {
+				segmentValues[capturedField] = value;
+			} else if ("OTYPE".equals(tag)) {
+				objectType = value;
+			} else {
+				infoTypeCode = value;
+			}
+			return;
+		}
+
+		if (!inObject) return;
+
+		if (segmentRules != null) {
+			if (segmentTag.equals(tag)) {
+				for (RoutingRule rule : segmentRules.getRules()) {
+					if (rule.matchesSegment(segmentValues, keyDate)) {
+						String value = rule.getActionValue(segmentValues);
+						if (value == null && rule.getAction() == RoutingRule.Action.RECEIVER) continue;
+						infoTypeRules.add(rule);
+						infoTypeValues.add(value);
+					}
+				}
+				segmentRules = null;
+			}
+		} else if (inInfoType && "E1PITYP".equals(tag)) {
+			inInfoType = false;
+			String code = infoTypeCode == null ? "" : infoTypeCode;
+			for (int i = 0; i < infoTypeRules.size(); i++) {
+				if (infoTypeRules.get(i).matchesInfoType(code)) {
+					objectRules.add(infoTypeRules.get(i));
+					objectValues.add(infoTypeValues.get(i));
+				}
+			}
+			for (RoutingRule rule : decisionTable.getInfoTypeRules()) {
+				if (rule.matchesInfoType(code)) {
+					objectRules.add(rule);
+					objectValues.add(null);
+				}
+			}
+		} else if ("E1PLOGI".equals(tag)) {
+			inObject = false;
+			result.countObject();
+			String type = objectType == null ? "" : objectType;
+			for (int i = 0; i < objectRules.size(); i++) {
+				RoutingRule rule = objectRules.get(i);
+				if (!rule.matchesObjectType(type)) continue;
+				if (rule.getAction() == RoutingRule.Action.RECEIVER) {
+					result.countSegmentHit();
+					result.addCompanyCode(objectValues.get(i));
+				} else {
+					result.setRouteToAll();
+				}
+			}
+		}
+	}
+
+	private void capture(String tag, int field) {
+		capturedTag = tag;
+		capturedField = field;
+		text.setLength(0);
+	}
+
+	private static XMLInputFactory createXMLInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		return factory;
+	}
+
+}
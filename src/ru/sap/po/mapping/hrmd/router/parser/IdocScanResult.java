@@ -0,0 +1,106 @@
+package ru.sap.po.mapping.hrmd.router.parser;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Result of a single scan over incoming <tt>HRMD_A09</tt> IDOC message.
+ *
+ * Keeps only the data routing decision depends on: distinct company codes (<code>BUKRS</code>)
+ * of current (<code>ENDDA</code> == '99991231') <code>E1P0001</code> segments of persons
+ * and an indicator that at least one organizational management infotype was found.
+ */
+public class IdocScanResult {
+
+	/**
+	 * Distinct company codes in order of their first appearance in the document.
+	 */
+	private final Set<String> companyCodes = new LinkedHashSet<>();
+
+	/**
+	 * Indicates that at least one of management infotypes was found in non-person object.
+	 */
+	private boolean routeToAll = false;
+
+	/**
+	 * Number of scanned <code>E1PLOGI</code> objects and of segments, which values were routed.
+	 */
+	private int objectCount, segmentHits;
+
+	/**
+	 * Callback invoked once, when route to all indicator is set for the first time, or {@code null}.
+	 */
+	private final Runnable routeToAllListener;
+
+	IdocScanResult() {
+		this(null);
+	}
+
+	IdocScanResult(Runnable routeToAllListener) {
+		this.routeToAllListener = routeToAllListener;
+	}
+
+	void addCompanyCode(String companyCode) {
+		companyCodes.add(companyCode);
+	}
+
+	void setRouteToAll() {
+		if (!routeToAll && routeToAllListener != null) routeToAllListener.run();
+		routeToAll = true;
+	}
+
+	void countObject() {
+		objectCount++;
+	}
+
+	void countSegmentHit() {
+		segmentHits++;
+	}
+
+	/**
+	 * Adds data of result of the following part of the same message.
+	 */
+	void merge(IdocScanResult other) {
+		companyCodes.addAll(other.companyCodes);
+		objectCount += other.objectCount;
+		segmentHits += other.segmentHits;
+		if (other.routeToAll) setRouteToAll();
+	}
+
+	void clear() {
+		companyCodes.clear();
+		routeToAll = false;
+		objectCount = 0;
+		segmentHits = 0;
+	}
+
+	/**
+	 * @return unmodifiable {@link Set} of collected company codes
+	 */
+	public Set<String> getCompanyCodes() {
+		return Collections.unmodifiableSet(companyCodes);
+	}
+
+	/**
+	 * @return number of scanned <code>E1PLOGI</code> objects
+	 */
+	public int getObjectCount() {
+		return objectCount;
+	}
+
+	/**
+	 * @return number of segments of objects, which values were routed, e.g. current <code>E1P0001</code> of persons
+	 */
+	public int getSegmentHits() {
+		return segmentHits;
+	}
+
+	/**
+	 * @return {@code true} if message must be routed to all possible receivers
+	 */
+	public boolean isRouteToAll() {
+		return routeToAll;
+	}
+
+}
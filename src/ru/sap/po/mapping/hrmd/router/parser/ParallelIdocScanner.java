@@ -0,0 +1,244 @@
+package ru.sap.po.mapping.hrmd.router.parser;
+
+import ru.sap.po.mapping.hrmd.router.routing.DecisionTable;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Scanner of very large <tt>HRMD_A09</tt> IDOC messages, which scans parts of message in parallel.
+ *
+ * Size of message is taken from {@link InputStream#available()}, which is expected to return the whole size
+ * of payload, as streams of in-memory payloads do. Its contract doesn't guarantee that, so if runtime stream
+ * returns 0 or only a part of size, message is not scanned in parallel. Messages smaller than threshold,
+ * bigger than maximum or of unknown size are streamed through a single {@link HrmdStaxScanner}.
+ * Other messages are read into memory and split into chunks at <code>E1PLOGI</code> start tags. Each chunk contains only whole objects and is scanned
+ * by its own {@link HrmdStaxScanner} in {@link ForkJoinPool}. Results of chunks are merged in document order,
+ * so merged result is the same as of a single scan. Route to all listener is invoked in calling thread
+ * as soon as any of chunks finds the indicator.
+ *
+ * Messages in other encodings than UTF-8, with document type declaration or with chunks, which can't
+ * be parsed on their own (e.g. <code>E1PLOGI</code> tag inside comment), are scanned by a single scanner.
+ *
+ * Instances are not thread-safe, but are cheap to create - one per message is expected.
+ */
+public class ParallelIdocScanner {
+
+	private static final byte[] OBJECT_START = "<E1PLOGI".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] OBJECT_END = "</E1PLOGI>".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CHUNK_START = "<CHUNK>".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CHUNK_END = "</CHUNK>".getBytes(StandardCharsets.US_ASCII);
+	private static final int MIN_CHUNK_SIZE = 64 * 1024;
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private static volatile ForkJoinPool pool;
+
+	private final DecisionTable decisionTable;
+	private final String keyDate;
+	private final long thresholdBytes;
+	private final int maxBytes;
+	private final int threads;
+	private Runnable routeToAllListener;
+
+	/**
+	 * @param decisionTable  compiled routing rules
+	 * @param keyDate        key date of validity checks in 'yyyyMMdd' format
+	 * @param thresholdBytes minimum size of message scanned in parallel
+	 * @param maxBytes       maximum size of message read into memory, rest of bigger message is streamed
+	 * @param threads        parallelism of shared {@link ForkJoinPool}, used when pool is created
+	 */
+	public ParallelIdocScanner(DecisionTable decisionTable, String keyDate, long thresholdBytes, long maxBytes,
+							   int threads) {
+		this.decisionTable = decisionTable;
+		this.keyDate = keyDate;
+		this.thresholdBytes = thresholdBytes;
+		this.maxBytes = (int) Math.max(0, Math.min(MAX_ARRAY_SIZE, maxBytes));
+		this.threads = threads;
+	}
+
+	/**
+	 * @param routeToAllListener callback invoked when route to all indicator is set
+	 */
+	public void setRouteToAllListener(Runnable routeToAllListener) {
+		this.routeToAllListener = routeToAllListener;
+	}
+
+	/**
+	 * Method reads the whole incoming message from given {@link InputStream}
+	 * and collects routing data into {@link IdocScanResult}.
+	 *
+	 * @param is {@link InputStream} with <tt>HRMD_A09</tt> XML
+	 *
+	 * @return {@link IdocScanResult} with collected company codes and route to all indicator
+	 * @throws IOException        if reading from stream fails
+	 * @throws XMLStreamException if incoming message is not well-formed XML
+	 */
+	public IdocScanResult scan(InputStream is) throws IOException, XMLStreamException {
+		// Size hint of in-memory payload is its whole size, streams without hint are not loaded into memory
+		int available = is.available();
+		if (available < thresholdBytes || available > maxBytes) return scanSequentially(is, routeToAllListener);
+
+		byte[] data = new byte[Math.min(maxBytes, Math.max(8192, available + 1))];
+		int length = 0;
+		int read;
+		while ((read = is.read(data, length, data.length - length)) != -1) {
+			length += read;
+			if (length < data.length) continue;
+			if (length >= maxBytes) {
+				// Message is bigger than hint and maximum, the rest of it is streamed
+				return scanSequentially(new SequenceInputStream(new ByteArrayInputStream(data, 0, length), is),
+						routeToAllListener);
+			}
+			data = Arrays.copyOf(data, length > maxBytes / 2 ? maxBytes : length * 2);
+		}
+
+		List<int[]> chunks = length > thresholdBytes ? split(data, length) : Collections.emptyList();
+		if (chunks.size() < 2) return scanSequentially(new ByteArrayInputStream(data, 0, length), routeToAllListener);
+
+		// Chunk scanners report route to all indicator and their end, listener is invoked in calling thread
+		BlockingQueue<Boolean> events = new LinkedBlockingQueue<>();
+		ForkJoinPool forkJoinPool = getPool(threads);
+		List<ForkJoinTask<IdocScanResult>> tasks = new ArrayList<>(chunks.size());
+		for (int[] chunk : chunks) {
+			byte[] source = data;
+			tasks.add(forkJoinPool.submit(() -> {
+				try {
+					return scanChunk(source, chunk[0], chunk[1], () -> events.add(Boolean.TRUE));
+				} finally {
+					events.add(Boolean.FALSE);
+				}
+			}));
+		}
+
+		boolean notified = false;
+		try {
+			for (int finished = 0; finished < tasks.size(); ) {
+				if (!events.take()) {
+					finished++;
+				} else if (!notified) {
+					notified = true;
+					if (routeToAllListener != null) routeToAllListener.run();
+				}
+			}
+			// Listener is already invoked, if any of chunks routes message to all receivers
+			IdocScanResult result = new IdocScanResult();
+			for (ForkJoinTask<IdocScanResult> task : tasks) result.merge(task.get());
+			return result;
+		} catch (InterruptedException ie) {
+			tasks.forEach(task -> task.cancel(false));
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scanning message in parallel", ie);
+		} catch (ExecutionException ee) {
+			// Chunk can't be parsed on its own, e.g. it was split inside of comment or CDATA
+			return scanSequentially(new ByteArrayInputStream(data, 0, length), notified ? null : routeToAllListener);
+		}
+	}
+
+	private IdocScanResult scanSequentially(InputStream is, Runnable listener) throws XMLStreamException {
+		HrmdStaxScanner scanner = new HrmdStaxScanner(decisionTable, keyDate);
+		scanner.setRouteToAllListener(listener);
+		return scanner.scan(is);
+	}
+
+	private IdocScanResult scanChunk(byte[] data, int from, int to, Runnable listener) throws XMLStreamException {
+		InputStream chunk = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+				new ByteArrayInputStream(CHUNK_START),
+				new ByteArrayInputStream(data, from, to - from),
+				new ByteArrayInputStream(CHUNK_END))));
+		HrmdStaxScanner scanner = new HrmdStaxScanner(decisionTable, keyDate);
+		scanner.setRouteToAllListener(listener);
+		return scanner.scan(chunk);
+	}
+
+	/**
+	 * Splits objects of message into chunks of approximately equal size.
+	 *
+	 * @return list of [from, to) offsets of chunks or empty list, if message can't be split
+	 */
+	private List<int[]> split(byte[] data, int length) {
+		int first = indexOfObjectStart(data, 0, length);
+		if (first < 0 || !isSplittable(data, first)) return Collections.emptyList();
+
+		int last = lastIndexOf(data, length, OBJECT_END);
+		if (last < first) return Collections.emptyList();
+		int end = last + OBJECT_END.length;
+
+		int parallelism = getPool(threads).getParallelism();
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, (end - first) / (parallelism * CHUNKS_PER_THREAD));
+
+		List<int[]> chunks = new ArrayList<>();
+		int from = first;
+		while (from < end) {
+			int next = from + chunkSize >= end ? -1 : indexOfObjectStart(data, from + chunkSize, end);
+			int to = next < 0 ? end : next;
+			chunks.add(new int[]{from, to});
+			from = to;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Chunks are parsed as UTF-8 without document type declaration, so message must match both.
+	 */
+	private static boolean isSplittable(byte[] data, int prologEnd) {
+		String prolog = new String(data, 0, prologEnd, StandardCharsets.ISO_8859_1);
+		if (prolog.contains("<!DOCTYPE")) return false;
+		int encoding = prolog.indexOf("encoding");
+		if (encoding < 0 || !prolog.startsWith("<?xml")) return true;
+		int declarationEnd = prolog.indexOf("?>");
+		if (declarationEnd < encoding) return true;
+		String declared = prolog.substring(encoding, declarationEnd).toUpperCase();
+		return declared.contains("UTF-8") || declared.contains("UTF8");
+	}
+
+	private static int indexOfObjectStart(byte[] data, int from, int to) {
+		for (int i = from; i <= to - OBJECT_START.length - 1; i++) {
+			if (data[i] != '<' || !startsWith(data, i, OBJECT_START)) continue;
+			byte next = data[i + OBJECT_START.length];
+			if (next == '>' || next == '/' || next == ' ' || next == '\t' || next == '\r' || next == '\n') return i;
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(byte[] data, int length, byte[] pattern) {
+		for (int i = length - pattern.length; i >= 0; i--) {
+			if (data[i] == '<' && startsWith(data, i, pattern)) return i;
+		}
+		return -1;
+	}
+
+	private static boolean startsWith(byte[] data, int offset, byte[] pattern) {
+		for (int i = 0; i < pattern.length; i++) {
+			if (data[offset + i] != pattern[i]) return false;
+		}
+		return true;
+	}
+
+	private static ForkJoinPool getPool(int threads) {
+		ForkJoinPool result = pool;
+		if (result == null) {
+			synchronized (ParallelIdocScanner.class) {
+				result = pool;
+				if (result == null) {
+					pool = result = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+				}
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,16 @@
+package ru.sap.po.mapping.hrmd.router.parser;
+
+/**
+ * Thrown by {@link HrmdByteScanner} when incoming message contains construction
+ * that can't be handled at byte level (non UTF-8 encoding, DTD, entity references
+ * or CDATA sections inside routing values, etc.). General XML parser must be used then.
+ */
+public class UnsupportedIdocException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public UnsupportedIdocException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,178 @@
+package ru.sap.po.mapping.hrmd.router.routing;
+
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled routing table of company codes (<code>BUKRS</code>) to receiver systems of one
+ * Operation Mapping parameter set.
+ *
+ * Operation Mapping parameters can't be enumerated, so table is compiled lazily: each company code is
+ * resolved with given {@link Resolver} only once, both found receiver systems and misses are remembered.
+ * Company codes of 4 ASCII characters are packed into {@code int} keys of open addressing table,
+ * lookups of known codes are constant-time and don't allocate. Other codes are kept in a regular map.
+ *
+ * Tables are shared between all messages of the same ICo object and are recompiled after
+ * "routing.table.ttl.seconds", so changes of Operation Mapping parameters are picked up.
+ * Reads are lock-free: new codes are added with copy-on-write of the table arrays.
+ */
+public class CompanyCodeRoutingTable {
+
+	/**
+	 * Resolves receiver system of company code, when it's not known to the table yet.
+	 */
+	public interface Resolver {
+
+		/**
+		 * @param companyCode company code value from <code>BUKRS</code> element
+		 *
+		 * @return receiver system or {@code null}, if company code is not mapped
+		 */
+		String resolve(String companyCode);
+	}
+
+	private static final int MAX_TABLES = 256;
+
+	/**
+	 * Marks company codes that are known to have no receiver system.
+	 */
+	private static final String MISS = new String("");
+
+	private static final Map<IcoKey, CompanyCodeRoutingTable> TABLES =
+			new LinkedHashMap<IcoKey, CompanyCodeRoutingTable>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<IcoKey, CompanyCodeRoutingTable> eldest) {
+					return size() > MAX_TABLES;
+				}
+			};
+
+	private final long compiledAt = System.currentTimeMillis();
+
+	private volatile PackedCodes packedCodes = new PackedCodes(new int[16], new String[16], 0);
+
+	private final Map<String, String> otherCodes = new ConcurrentHashMap<>();
+
+	/**
+	 * Method returns actual routing table of given ICo object, compiling new one if needed.
+	 *
+	 * @param icoKey {@link IcoKey} of ICo object, which Operation Mapping parameters are used
+	 *
+	 * @return {@link CompanyCodeRoutingTable} instance
+	 */
+	public static CompanyCodeRoutingTable forScenario(IcoKey icoKey) {
+		long ttlMillis = RouterConfiguration.getCurrent().getRoutingTableTtlMillis();
+		synchronized (TABLES) {
+			CompanyCodeRoutingTable table = TABLES.get(icoKey);
+			if (table == null || System.currentTimeMillis() >= table.compiledAt + ttlMillis) {
+				table = new CompanyCodeRoutingTable();
+				if (ttlMillis > 0) TABLES.put(icoKey, table);
+			}
+			return table;
+		}
+	}
+
+	/**
+	 * Method returns receiver system of given company code.
+	 *
+	 * @param companyCode company code value from <code>BUKRS</code> element
+	 * @param resolver    {@link Resolver} to use, if company code is not known yet
+	 *
+	 * @return receiver system or {@code null}, if company code is not mapped
+	 */
+	public String get(String companyCode, Resolver resolver) {
+		int key = pack(companyCode);
+		String systemId = key != 0 ? packedCodes.get(key) : otherCodes.get(companyCode);
+
+		if (systemId == null) {
+			systemId = resolver.resolve(companyCode);
+			if (systemId == null) systemId = MISS;
+			if (key != 0) {
+				put(key, systemId);
+			} else {
+				otherCodes.put(companyCode, systemId);
+			}
+		}
+
+		return systemId == MISS ? null : systemId;
+	}
+
+	private synchronized void put(int key, String systemId) {
+		PackedCodes current = packedCodes;
+		if (current.get(key) != null) return;
+
+		int capacity = current.keys.length;
+		if ((current.size + 1) * 2 > capacity) capacity *= 2;
+
+		PackedCodes copy = capacity == current.keys.length
+				? new PackedCodes(current.keys.clone(), current.values.clone(), current.size)
+				: current.rehash(capacity);
+		copy.insert(key, systemId);
+		packedCodes = copy;
+	}
+
+	/**
+	 * Packs company code of 4 ASCII characters into {@code int}.
+	 *
+	 * @return packed key or 0, if company code can't be packed
+	 */
+	private static int pack(String companyCode) {
+		if (companyCode.length() != 4) return 0;
+		int key = 0;
+		for (int i = 0; i < 4; i++) {
+			char c = companyCode.charAt(i);
+			if (c == 0 || c > 0x7F) return 0;
+			key = (key << 8) | c;
+		}
+		return key;
+	}
+
+	/**
+	 * Open addressing table of packed company codes. Never modified after publication.
+	 */
+	private static final class PackedCodes {
+		private final int[] keys;
+		private final String[] values;
+		private int size;
+
+		private PackedCodes(int[] keys, String[] values, int size) {
+			this.keys = keys;
+			this.values = values;
+			this.size = size;
+		}
+
+		private String get(int key) {
+			int mask = keys.length - 1;
+			for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+				if (keys[i] == key) return values[i];
+				if (keys[i] == 0) return null;
+			}
+		}
+
+		private void insert(int key, String value) {
+			int mask = keys.length - 1;
+			int i = mix(key) & mask;
+			while (keys[i] != 0) i = (i + 1) & mask;
+			keys[i] = key;
+			values[i] = value;
+			size++;
+		}
+
+		private PackedCodes rehash(int capacity) {
+			PackedCodes copy = new PackedCodes(new int[capacity], new String[capacity], 0);
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != 0) copy.insert(keys[i], values[i]);
+			}
+			return copy;
+		}
+
+		private static int mix(int key) {
+			int h = key * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+
+}
@@ -0,0 +1,296 @@
+package ru.sap.po.mapping.hrmd.router.routing;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Routing rules compiled into a decision table, which is evaluated by scanners in a single pass.
+ *
+ * Rules are declared in "router.properties":
+ * <pre>
+ * routing.rules=persons,management
+ * routing.rule.persons.otype=P
+ * routing.rule.persons.infty=0001
+ * routing.rule.persons.segment=E1P0001
+ * routing.rule.persons.where=ENDDA=99991231
+ * routing.rule.persons.action=receiver:BUKRS
+ * routing.rule.management.otype=!P
+ * routing.rule.management.infty=management
+ * routing.rule.management.action=routeToAll
+ * </pre>
+ * These are also the default rules, used when "routing.rules" is not set.
+ *
+ * Table is indexed by segment name, so scanner needs only one map lookup per element to find
+ * out, whether segment must be captured and which of its fields are checked by the rules.
+ * Table is immutable and is compiled once per configuration snapshot.
+ */
+public final class DecisionTable {
+
+	/**
+	 * Fields of one segment checked by the rules and rules which depend on them.
+	 */
+	public static final class SegmentRules {
+
+		private final String[] fields;
+		private final Map<String, Integer> fieldIndexes;
+		private final RoutingRule[] rules;
+
+		private SegmentRules(Map<String, Integer> fieldIndexes, List<RoutingRule> rules) {
+			this.fieldIndexes = fieldIndexes;
+			this.fields = fieldIndexes.keySet().toArray(new String[0]);
+			this.rules = rules.toArray(new RoutingRule[0]);
+		}
+
+		/**
+		 * @return names of fields to capture, captured values are passed to rules in the same order
+		 */
+		public String[] getFields() {
+			return fields;
+		}
+
+		/**
+		 * @param field name of segment field
+		 *
+		 * @return index of field in {@link #getFields()} or -1, if field is not checked by rules
+		 */
+		public int indexOf(String field) {
+			Integer index = fieldIndexes.get(field);
+			return index == null ? -1 : index;
+		}
+
+		public RoutingRule[] getRules() {
+			return rules;
+		}
+	}
+
+	private static final String PREFIX = "routing.rule.";
+	private static final String MANAGEMENT_INFO_TYPES = "management";
+	private static final String RECEIVER_ACTION = "receiver:";
+	private static final String ROUTE_TO_ALL_ACTION = "routeToAll";
+	private static final String VALID_ON_TODAY = "today";
+
+	private static final Map<String, String> DEFAULT_RULES = new HashMap<>();
+
+	static {
+		DEFAULT_RULES.put("routing.rules", "persons,management");
+		DEFAULT_RULES.put(PREFIX + "persons.otype", "P");
+		DEFAULT_RULES.put(PREFIX + "persons.infty", "0001");
+		DEFAULT_RULES.put(PREFIX + "persons.segment", "E1P0001");
+		DEFAULT_RULES.put(PREFIX + "persons.where", "ENDDA=99991231");
+		DEFAULT_RULES.put(PREFIX + "persons.action", RECEIVER_ACTION + "BUKRS");
+		DEFAULT_RULES.put(PREFIX + "management.otype", "!P");
+		DEFAULT_RULES.put(PREFIX + "management.infty", MANAGEMENT_INFO_TYPES);
+		DEFAULT_RULES.put(PREFIX + "management.action", ROUTE_TO_ALL_ACTION);
+	}
+
+	private final List<RoutingRule> rules;
+	private final Map<String, SegmentRules> segments;
+	private final RoutingRule[] infoTypeRules;
+	private final boolean defaultRules;
+
+	private DecisionTable(List<RoutingRule> rules, Map<String, SegmentRules> segments, boolean defaultRules) {
+		this.rules = Collections.unmodifiableList(rules);
+		this.segments = segments;
+		List<RoutingRule> infoTypeLevel = new ArrayList<>();
+		for (RoutingRule rule : rules) {
+			if (rule.getSegment() == null) infoTypeLevel.add(rule);
+		}
+		this.infoTypeRules = infoTypeLevel.toArray(new RoutingRule[0]);
+		this.defaultRules = defaultRules;
+	}
+
+	/**
+	 * Compiles rules declared in properties, or default rules if "routing.rules" is not set.
+	 *
+	 * @param properties          accessor of property values
+	 * @param managementInfoTypes infotypes referenced by 'management' keyword
+	 *
+	 * @return compiled {@link DecisionTable}
+	 * @throws IllegalArgumentException if rules are declared incorrectly
+	 */
+	public static DecisionTable compile(Function<String, String> properties, Collection<String> managementInfoTypes) {
+		boolean defaultRules = properties.apply("routing.rules") == null;
+		Function<String, String> source = defaultRules ? DEFAULT_RULES::get : properties;
+
+		List<RoutingRule> rules = new ArrayList<>();
+		Map<String, Map<String, Integer>> segmentFields = new LinkedHashMap<>();
+		Map<String, List<RoutingRule>> segmentRules = new LinkedHashMap<>();
+
+		for (String name : split(source.apply("routing.rules"), ",")) {
+			RoutingRule rule = compileRule(name, source, managementInfoTypes, segmentFields);
+			rules.add(rule);
+			if (rule.getSegment() != null) {
+				segmentRules.computeIfAbsent(rule.getSegment(), s -> new ArrayList<>()).add(rule);
+			}
+		}
+		if (rules.isEmpty()) throw new IllegalArgumentException("No routing rules are declared in 'routing.rules'");
+
+		Map<String, SegmentRules> segments = new HashMap<>();
+		segmentRules.forEach((segment, list) -> segments.put(segment, new SegmentRules(segmentFields.get(segment), list)));
+		return new DecisionTable(rules, segments, defaultRules);
+	}
+
+	private static RoutingRule compileRule(String name, Function<String, String> source,
+										   Collection<String> managementInfoTypes,
+										   Map<String, Map<String, Integer>> segmentFields) {
+		String otype = source.apply(PREFIX + name + ".otype");
+		String infty = source.apply(PREFIX + name + ".infty");
+		String segment = trimToNull(source.apply(PREFIX + name + ".segment"));
+		String where = source.apply(PREFIX + name + ".where");
+		String valid = trimToNull(source.apply(PREFIX + name + ".valid"));
+		String action = trimToNull(source.apply(PREFIX + name + ".action"));
+
+		boolean objectTypesNegated = isNegated(otype);
+		Set<String> objectTypes = otype == null ? null : new HashSet<>(split(stripNegation(otype), ","));
+
+		boolean infoTypesNegated = isNegated(infty);
+		Collection<String> infoTypes = null;
+		if (infty != null) {
+			String list = stripNegation(infty);
+			if (MANAGEMENT_INFO_TYPES.equals(list)) {
+				if (managementInfoTypes == null) {
+					throw new IllegalArgumentException("Routing rule '" + name + "' refers to 'management.infotypes', which is not set");
+				}
+				infoTypes = managementInfoTypes;
+			} else {
+				infoTypes = new HashSet<>(split(list, ","));
+			}
+		}
+
+		if (action == null) throw new IllegalArgumentException("Routing rule '" + name + "' has no action");
+
+		Map<String, Integer> fields = segment == null ? null
+				: segmentFields.computeIfAbsent(segment, s -> new LinkedHashMap<>());
+
+		List<String> conditions = split(where, ";");
+		int[] conditionFields = new int[conditions.size()];
+		String[] conditionValues = new String[conditions.size()];
+		boolean[] conditionsNegated = new boolean[conditions.size()];
+		for (int i = 0; i < conditions.size(); i++) {
+			String condition = conditions.get(i);
+			int eq = condition.indexOf('=');
+			if (fields == null || eq <= 0) {
+				throw new IllegalArgumentException("Routing rule '" + name + "' has invalid condition '" + condition + "'");
+			}
+			conditionsNegated[i] = condition.charAt(eq - 1) == '!';
+			String field = condition.substring(0, conditionsNegated[i] ? eq - 1 : eq).trim();
+			if (field.isEmpty()) {
+				throw new IllegalArgumentException("Routing rule '" + name + "' has invalid condition '" + condition + "'");
+			}
+			conditionFields[i] = fieldIndex(fields, field);
+			conditionValues[i] = condition.substring(eq + 1).trim();
+		}
+
+		boolean validOnKeyDate = false;
+		int beginDateField = -1, endDateField = -1;
+		if (valid != null) {
+			if (fields == null || !VALID_ON_TODAY.equals(valid)) {
+				throw new IllegalArgumentException("Routing rule '" + name + "' has invalid validity '" + valid + "'");
+			}
+			validOnKeyDate = true;
+			beginDateField = fieldIndex(fields, "BEGDA");
+			endDateField = fieldIndex(fields, "ENDDA");
+		}
+
+		RoutingRule.Action ruleAction;
+		int actionField = -1;
+		if (ROUTE_TO_ALL_ACTION.equals(action)) {
+			ruleAction = RoutingRule.Action.ROUTE_TO_ALL;
+		} else if (action.startsWith(RECEIVER_ACTION) && fields != null
+				&& action.length() > RECEIVER_ACTION.length()) {
+			ruleAction = RoutingRule.Action.RECEIVER;
+			actionField = fieldIndex(fields, action.substring(RECEIVER_ACTION.length()).trim());
+		} else {
+			throw new IllegalArgumentException("Routing rule '" + name + "' has invalid action '" + action + "'");
+		}
+
+		return new RoutingRule(name, objectTypes, objectTypesNegated, infoTypes, infoTypesNegated, segment,
+				conditionFields, conditionValues, conditionsNegated,
+				validOnKeyDate, beginDateField, endDateField, ruleAction, actionField);
+	}
+
+	private static int fieldIndex(Map<String, Integer> fields, String field) {
+		return fields.computeIfAbsent(field, f -> fields.size());
+	}
+
+	private static boolean isNegated(String value) {
+		return value != null && value.trim().startsWith("!");
+	}
+
+	private static String stripNegation(String value) {
+		String trimmed = value.trim();
+		return trimmed.startsWith("!") ? trimmed.substring(1).trim() : trimmed;
+	}
+
+	private static String trimToNull(String value) {
+		if (value == null) return null;
+		String trimmed = value.trim();
+		return trimmed.isEmpty() ? null : trimmed;
+	}
+
+	private static List<String> split(String value, String separator) {
+		List<String> tokens = new ArrayList<>();
+		if (value == null) return tokens;
+		for (String token : value.split(separator)) {
+			if (!token.trim().isEmpty()) tokens.add(token.trim());
+		}
+		return tokens;
+	}
+
+	/**
+	 * @return current date in 'yyyyMMdd' format, used as key date of validity checks
+	 */
+	public static String today() {
+		return LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+	}
+
+	/**
+	 * @return all rules in order of declaration
+	 */
+	public List<RoutingRule> getRules() {
+		return rules;
+	}
+
+	/**
+	 * @param segment name of element inside <code>E1PITYP</code>
+	 *
+	 * @return {@link SegmentRules} of segment or {@code null}, if segment is not checked by rules
+	 */
+	public SegmentRules getSegmentRules(String segment) {
+		return segments.get(segment);
+	}
+
+	/**
+	 * @return rules, which depend only on object type and infotype
+	 */
+	public RoutingRule[] getInfoTypeRules() {
+		return infoTypeRules;
+	}
+
+	/**
+	 * @return {@code true}, if table is compiled from default rules, which are also implemented
+	 * by 'bytes' and 'dom' parser engines
+	 */
+	public boolean isDefault() {
+		return defaultRules;
+	}
+
+	@Override
+	public String toString() {
+		List<String> names = new ArrayList<>();
+		for (RoutingRule rule : rules) names.add(rule.getName());
+		return Arrays.toString(names.toArray());
+	}
+
+}
@@ -0,0 +1,163 @@
+package ru.sap.po.mapping.hrmd.router.routing;
+
+import com.sap.aii.mapping.api.DynamicConfiguration;
+import com.sap.aii.mapping.api.DynamicConfigurationKey;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Encoding of 'BUKRS'-'ReceiverSystem' pairs in Dynamic Configuration of message.
+ *
+ * All keys are created in {@link #NAMESPACE} namespace, the form depends on {@link Mode}:
+ * <ul>
+ *     <li>{@link Mode#PAIRS} - key per company code: <code>R&lt;BUKRS&gt;</code> = <code>&lt;SystemID&gt;</code></li>
+ *     <li>{@link Mode#GROUPED} - key per receiver system: <code>S_&lt;SystemID&gt;</code> = <code>&lt;BUKRS&gt;,&lt;BUKRS&gt;</code></li>
+ *     <li>{@link Mode#PACKED} - one key: <code>PAIRS</code> = <code>&lt;SystemID&gt;=&lt;BUKRS&gt;,&lt;BUKRS&gt;;&lt;SystemID&gt;=...</code></li>
+ * </ul>
+ * Compact modes keep message header small for messages with many company codes. Downstream mappings
+ * should read pairs with {@link #read(DynamicConfiguration)}, which understands all modes.
+ *
+ * In all modes message, which is routed to all receivers of ICo, gets <code>ROUTE_TO_ALL</code> = <code>true</code>,
+ * see {@link #isRouteToAll(DynamicConfiguration)}.
+ */
+public final class DynamicConfigurationCodec {
+
+	/**
+	 * Form of pairs in Dynamic Configuration.
+	 */
+	public enum Mode {
+		PAIRS, GROUPED, PACKED;
+
+		/**
+		 * @param value        mode name, case-insensitive, or {@code null}
+		 * @param defaultValue mode returned, if value is not a mode name
+		 */
+		public static Mode parse(String value, Mode defaultValue) {
+			if (value == null) return defaultValue;
+			for (Mode mode : values()) {
+				if (mode.name().equalsIgnoreCase(value.trim())) return mode;
+			}
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Namespace of Dynamic Configuration keys.
+	 */
+	public static final String NAMESPACE = "urn:ru:SAP:CustomNamespace:10";
+
+	private static final String PAIR_PREFIX = "R";
+	private static final String GROUP_PREFIX = "S_";
+	private static final String PACKED_KEY = "PAIRS";
+	private static final String ROUTE_TO_ALL_KEY = "ROUTE_TO_ALL";
+
+	private DynamicConfigurationCodec() {
+	}
+
+	/**
+	 * @param receivers 'BUKRS'-'ReceiverSystem' pairs
+	 * @param mode      {@link Mode} of encoding
+	 *
+	 * @return key names and values to put into {@link #NAMESPACE}, grouped modes are ordered by receiver system
+	 * and company code
+	 */
+	public static Map<String, String> encode(Map<String, String> receivers, Mode mode) {
+		return encode(receivers, mode, false);
+	}
+
+	/**
+	 * @param receivers  'BUKRS'-'ReceiverSystem' pairs
+	 * @param mode       {@link Mode} of encoding
+	 * @param routeToAll {@code true}, if message is routed to all receivers of ICo
+	 *
+	 * @return key names and values to put into {@link #NAMESPACE}, grouped modes are ordered by receiver system
+	 * and company code, route to all indicator is the last one
+	 */
+	public static Map<String, String> encode(Map<String, String> receivers, Mode mode, boolean routeToAll) {
+		Map<String, String> entries = new LinkedHashMap<>();
+		if (mode == Mode.PAIRS) {
+			receivers.forEach((bukrs, systemId) -> entries.put(PAIR_PREFIX + bukrs, systemId));
+			if (routeToAll) entries.put(ROUTE_TO_ALL_KEY, Boolean.TRUE.toString());
+			return entries;
+		}
+
+		Map<String, Set<String>> groups = new TreeMap<>();
+		receivers.forEach((bukrs, systemId) -> groups.computeIfAbsent(systemId, s -> new TreeSet<>()).add(bukrs));
+
+		if (mode == Mode.GROUPED) {
+			groups.forEach((systemId, codes) -> entries.put(GROUP_PREFIX + systemId, String.join(",", codes)));
+		} else if (!groups.isEmpty()) {
+			StringBuilder packed = new StringBuilder(receivers.size() * 6);
+			groups.forEach((systemId, codes) -> {
+				if (packed.length() > 0) packed.append(';');
+				packed.append(systemId).append('=').append(String.join(",", codes));
+			});
+			entries.put(PACKED_KEY, packed.toString());
+		}
+		if (routeToAll) entries.put(ROUTE_TO_ALL_KEY, Boolean.TRUE.toString());
+		return entries;
+	}
+
+	/**
+	 * @param entries key names and values of {@link #NAMESPACE} in any of modes
+	 *
+	 * @return 'BUKRS'-'ReceiverSystem' pairs
+	 */
+	public static Map<String, String> decode(Map<String, String> entries) {
+		Map<String, String> receivers = new LinkedHashMap<>();
+		entries.forEach((name, value) -> {
+			if (value == null || ROUTE_TO_ALL_KEY.equals(name)) return;
+			if (PACKED_KEY.equals(name)) {
+				for (String group : value.split(";")) {
+					int separator = group.indexOf('=');
+					if (separator > 0) putGroup(receivers, group.substring(0, separator), group.substring(separator + 1));
+				}
+			} else if (name.startsWith(GROUP_PREFIX)) {
+				putGroup(receivers, name.substring(GROUP_PREFIX.length()), value);
+			} else if (name.startsWith(PAIR_PREFIX) && name.length() > PAIR_PREFIX.length()) {
+				receivers.put(name.substring(PAIR_PREFIX.length()), value);
+			}
+		});
+		return receivers;
+	}
+
+	/**
+	 * Reads 'BUKRS'-'ReceiverSystem' pairs written by receiver determination in any of modes.
+	 *
+	 * @param dc {@link DynamicConfiguration} of message
+	 *
+	 * @return 'BUKRS'-'ReceiverSystem' pairs
+	 */
+	public static Map<String, String> read(DynamicConfiguration dc) {
+		Map<String, String> entries = new LinkedHashMap<>();
+		Iterator<DynamicConfigurationKey> keys = dc.getKeys();
+		while (keys != null && keys.hasNext()) {
+			DynamicConfigurationKey key = keys.next();
+			if (NAMESPACE.equals(key.getNamespace())) entries.put(key.getName(), dc.get(key));
+		}
+		return decode(entries);
+	}
+
+	/**
+	 * Reads route to all indicator written by receiver determination.
+	 *
+	 * @param dc {@link DynamicConfiguration} of message
+	 *
+	 * @return {@code true}, if message is routed to all receivers of ICo
+	 */
+	public static boolean isRouteToAll(DynamicConfiguration dc) {
+		return Boolean.parseBoolean(dc.get(DynamicConfigurationKey.create(NAMESPACE, ROUTE_TO_ALL_KEY)));
+	}
+
+	private static void putGroup(Map<String, String> receivers, String systemId, String codes) {
+		for (String bukrs : codes.split(",")) {
+			if (!bukrs.isEmpty()) receivers.put(bukrs, systemId);
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package ru.sap.po.mapping.hrmd.router.routing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Routing decision of receiver determination, ready to be written: 'BUKRS'-'SystemID' pairs,
+ * their Dynamic Configuration entries and, if result is cached, serialized <code>ReceiverDetermination</code> message.
+ * Instances are immutable and may be shared by messages with the same {@link RoutingResultCache.Signature}.
+ */
+public final class RoutingResult {
+
+	private final Map<String, String> receivers;
+	private final Map<String, String> dynamicConfiguration;
+	private final byte[] output;
+
+	/**
+	 * @param receivers            'BUKRS'-'SystemID' pairs
+	 * @param dynamicConfiguration key names and values of Dynamic Configuration, see {@link DynamicConfigurationCodec}
+	 * @param output               serialized <code>ReceiverDetermination</code> message or {@code null}, if it's
+	 *                             written directly to output payload
+	 */
+	public RoutingResult(Map<String, String> receivers, Map<String, String> dynamicConfiguration, byte[] output) {
+		this.receivers = Collections.unmodifiableMap(new LinkedHashMap<>(receivers));
+		this.dynamicConfiguration = Collections.unmodifiableMap(new LinkedHashMap<>(dynamicConfiguration));
+		this.output = output;
+	}
+
+	/**
+	 * @return unmodifiable {@link Map} of 'BUKRS'-'SystemID' pairs
+	 */
+	public Map<String, String> getReceivers() {
+		return receivers;
+	}
+
+	/**
+	 * @return unmodifiable {@link Map} of Dynamic Configuration key names and values
+	 */
+	public Map<String, String> getDynamicConfiguration() {
+		return dynamicConfiguration;
+	}
+
+	/**
+	 * @return serialized <code>ReceiverDetermination</code> message or {@code null}, if it's written directly
+	 * to output payload. Array is shared and must not be modified
+	 */
+	public byte[] getOutput() {
+		return output;
+	}
+
+}
@@ -0,0 +1,135 @@
+package ru.sap.po.mapping.hrmd.router.routing;
+
+import ru.sap.po.mapping.hrmd.router.config.RouterConfiguration;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Process-wide LRU cache of {@link RoutingResult}s.
+ *
+ * Consecutive messages of the same HR run often carry the same company codes and route to all indicator,
+ * so they get the same receivers. Result is keyed by {@link Signature} of data it was built from: ICo object,
+ * configuration version, sorted company codes, route to all indicator, and identities of
+ * {@link CompanyCodeRoutingTable} and of ICo lookup pairs. Routing table is recompiled after its TTL and
+ * lookup pairs are replaced when they are loaded again, so results are never served longer than data
+ * they were built from.
+ *
+ * Cache keeps at most "routing.result.cache.max.entries" entries, it's disabled, if maximum is 0.
+ */
+public class RoutingResultCache {
+
+	/**
+	 * Routing features of a message, which completely determine its {@link RoutingResult}.
+	 */
+	public static final class Signature {
+		private final IcoKey icoKey;
+		private final long configurationVersion;
+		private final CompanyCodeRoutingTable routingTable;
+		private final Map<String, String> lookupPairs;
+		private final String[] companyCodes;
+		private final int hash;
+
+		/**
+		 * @param icoKey        {@link IcoKey} of ICo object
+		 * @param configuration {@link RouterConfiguration} snapshot of message
+		 * @param routingTable  {@link CompanyCodeRoutingTable} of ICo object
+		 * @param lookupPairs   pairs of ICo lookup, if message is routed to all receivers, otherwise {@code null}
+		 * @param companyCodes  company codes found in message
+		 */
+		public Signature(IcoKey icoKey, RouterConfiguration configuration, CompanyCodeRoutingTable routingTable,
+						 Map<String, String> lookupPairs, Collection<String> companyCodes) {
+			this.icoKey = icoKey;
+			this.configurationVersion = configuration.getVersion();
+			this.routingTable = routingTable;
+			this.lookupPairs = lookupPairs;
+			this.companyCodes = companyCodes.toArray(new String[0]);
+			Arrays.sort(this.companyCodes);
+
+			int h = icoKey.hashCode();
+			h = 31 * h + Long.hashCode(configurationVersion);
+			h = 31 * h + System.identityHashCode(routingTable);
+			h = 31 * h + System.identityHashCode(lookupPairs);
+			this.hash = 31 * h + Arrays.hashCode(this.companyCodes);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Signature)) return false;
+			Signature that = (Signature) o;
+			return hash == that.hash
+					&& configurationVersion == that.configurationVersion
+					&& routingTable == that.routingTable
+					&& lookupPairs == that.lookupPairs
+					&& Objects.equals(icoKey, that.icoKey)
+					&& Arrays.equals(companyCodes, that.companyCodes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static final RoutingResultCache INSTANCE = new RoutingResultCache();
+
+	private final Map<Signature, RoutingResult> entries = new LinkedHashMap<Signature, RoutingResult>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Signature, RoutingResult> eldest) {
+			return size() > RouterConfiguration.getCurrent().getRoutingResultCacheMaxEntries();
+		}
+	};
+
+	private RoutingResultCache() {
+	}
+
+	public static RoutingResultCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @param signature {@link Signature} of message
+	 *
+	 * @return cached {@link RoutingResult} or {@code null}
+	 */
+	public RoutingResult get(Signature signature) {
+		synchronized (entries) {
+			return entries.get(signature);
+		}
+	}
+
+	/**
+	 * @return {@code true}, if results are cached
+	 */
+	public boolean isEnabled() {
+		return RouterConfiguration.getCurrent().getRoutingResultCacheMaxEntries() > 0;
+	}
+
+	/**
+	 * Remembers result of given signature, if cache is enabled.
+	 *
+	 * @param signature {@link Signature} of message
+	 * @param result    {@link RoutingResult} built for the message
+	 */
+	public void put(Signature signature, RoutingResult result) {
+		if (!isEnabled()) return;
+		synchronized (entries) {
+			entries.put(signature, result);
+		}
+	}
+
+	/**
+	 * Removes all entries from cache.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+package ru.sap.po.mapping.hrmd.router.routing;
+
+import java.util.Collection;
+
+/**
+ * Compiled routing rule of {@link DecisionTable}: predicates on <code>E1PLOGI/OTYPE</code>,
+ * <code>E1PITYP/INFTY</code> and fields of one infotype segment, mapped to an action.
+ */
+public final class RoutingRule {
+
+	/**
+	 * Action of the rule.
+	 */
+	public enum Action {
+		/**
+		 * Value of action field resolves receiver system through Operation Mapping parameters.
+		 */
+		RECEIVER,
+		/**
+		 * Message must be routed to all possible receivers of ICo.
+		 */
+		ROUTE_TO_ALL
+	}
+
+	private final String name;
+	private final Collection<String> objectTypes;
+	private final boolean objectTypesNegated;
+	private final Collection<String> infoTypes;
+	private final boolean infoTypesNegated;
+	private final String segment;
+	private final int[] conditionFields;
+	private final String[] conditionValues;
+	private final boolean[] conditionsNegated;
+	private final boolean validOnKeyDate;
+	private final int beginDateField;
+	private final int endDateField;
+	private final Action action;
+	private final int actionField;
+
+	RoutingRule(String name, Collection<String> objectTypes, boolean objectTypesNegated,
+				Collection<String> infoTypes, boolean infoTypesNegated, String segment,
+				int[] conditionFields, String[] conditionValues, boolean[] conditionsNegated,
+				boolean validOnKeyDate, int beginDateField, int endDateField, Action action, int actionField) {
+		this.name = name;
+		this.objectTypes = objectTypes;
+		this.objectTypesNegated = objectTypesNegated;
+		this.infoTypes = infoTypes;
+		this.infoTypesNegated = infoTypesNegated;
+		this.segment = segment;
+		this.conditionFields = conditionFields;
+		this.conditionValues = conditionValues;
+		this.conditionsNegated = conditionsNegated;
+		this.validOnKeyDate = validOnKeyDate;
+		this.beginDateField = beginDateField;
+		this.endDateField = endDateField;
+		this.action = action;
+		this.actionField = actionField;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return name of infotype segment, which fields are checked, or {@code null} for infotype-level rule
+	 */
+	public String getSegment() {
+		return segment;
+	}
+
+	public Action getAction() {
+		return action;
+	}
+
+	/**
+	 * @param objectType first <code>OTYPE</code> of <code>E1PLOGI</code> or empty string
+	 *
+	 * @return {@code true}, if object type matches the rule
+	 */
+	public boolean matchesObjectType(String objectType) {
+		return objectTypes == null || objectTypes.contains(objectType) != objectTypesNegated;
+	}
+
+	/**
+	 * @param infoType first <code>INFTY</code> of <code>E1PITYP</code> or empty string
+	 *
+	 * @return {@code true}, if infotype matches the rule
+	 */
+	public boolean matchesInfoType(String infoType) {
+		return infoTypes == null || infoTypes.contains(infoType) != infoTypesNegated;
+	}
+
+	/**
+	 * @param values  captured field values of segment in order of {@link DecisionTable.SegmentRules#getFields()},
+	 *                {@code null} for missing fields
+	 * @param keyDate key date in 'yyyyMMdd' format
+	 *
+	 * @return {@code true}, if segment fields match the rule
+	 */
+	public boolean matchesSegment(String[] values, String keyDate) {
+		for (int i = 0; i < conditionFields.length; i++) {
+			String value = values[conditionFields[i]];
+			if (conditionValues[i].equals(value == null ? "" : value) == conditionsNegated[i]) return false;
+		}
+		if (validOnKeyDate) {
+			String begin = values[beginDateField];
+			String end = values[endDateField];
+			if (begin == null || end == null || begin.compareTo(keyDate) > 0 || end.compareTo(keyDate) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param values captured field values of segment
+	 *
+	 * @return value of action field or {@code null}, if it's missing or empty
+	 */
+	public String getActionValue(String[] values) {
+		if (action != Action.RECEIVER) return null;
+		String value = values[actionField];
+		return value == null || value.isEmpty() ? null : value;
+	}
+
+}
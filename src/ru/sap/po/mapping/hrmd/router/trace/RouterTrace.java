@@ -0,0 +1,181 @@
+package ru.sap.po.mapping.hrmd.router.trace;
+
+import com.sap.aii.mapping.api.AbstractTrace;
+import ru.sap.po.mapping.hrmd.router.metrics.FlightRecord;
+import ru.sap.po.mapping.hrmd.router.metrics.RouterMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Facade of SAP PO {@link AbstractTrace}, that filters messages by configured {@link TraceLevel}
+ * before they are built. Messages that require concatenation are passed as {@link Supplier}
+ * and are built only if their level is enabled.
+ *
+ * In aggregated mode per-item messages ({@link #detail(Supplier)}) are not written at all,
+ * instead each processing {@link Phase} writes one summary line with its counters and duration.
+ *
+ * Outside of SAP PO runtime (warm-up, load tests, benchmarks) mapping has no {@link AbstractTrace},
+ * then nothing is written, but phases are still measured.
+ */
+public class RouterTrace {
+
+	private final AbstractTrace trace;
+	private final TraceLevel level;
+	private final boolean aggregated;
+	private final FlightRecord record;
+
+	/**
+	 * @param trace      {@link AbstractTrace} of current message or {@code null}, if there is no trace
+	 * @param level      maximum {@link TraceLevel} of written messages
+	 * @param aggregated {@code true} to write phase summaries instead of per-item messages
+	 */
+	public RouterTrace(AbstractTrace trace, TraceLevel level, boolean aggregated) {
+		this(trace, level, aggregated, FlightRecord.DISABLED);
+	}
+
+	/**
+	 * @param trace      {@link AbstractTrace} of current message or {@code null}, if there is no trace
+	 * @param level      maximum {@link TraceLevel} of written messages
+	 * @param aggregated {@code true} to write phase summaries instead of per-item messages
+	 * @param record     {@link FlightRecord} of current message, which gets durations of phases
+	 */
+	public RouterTrace(AbstractTrace trace, TraceLevel level, boolean aggregated, FlightRecord record) {
+		this.trace = trace;
+		this.level = level;
+		this.aggregated = aggregated;
+		this.record = record;
+	}
+
+	/**
+	 * @return {@link FlightRecord} of current message, never {@code null}
+	 */
+	public FlightRecord getRecord() {
+		return record;
+	}
+
+	public boolean isInfoEnabled() {
+		return trace != null && level.compareTo(TraceLevel.INFO) >= 0;
+	}
+
+	public boolean isDebugEnabled() {
+		return trace != null && level == TraceLevel.DEBUG;
+	}
+
+	public void warning(String message) {
+		if (trace != null) trace.addWarning(message);
+	}
+
+	public void warning(String message, Throwable t) {
+		if (trace != null) trace.addWarning(message, t);
+	}
+
+	public void info(String message) {
+		if (isInfoEnabled()) trace.addInfo(message);
+	}
+
+	public void info(Supplier<String> message) {
+		if (isInfoEnabled()) trace.addInfo(message.get());
+	}
+
+	public void debug(String message) {
+		if (isDebugEnabled()) trace.addDebugMessage(message);
+	}
+
+	public void debug(Supplier<String> message) {
+		if (isDebugEnabled()) trace.addDebugMessage(message.get());
+	}
+
+	/**
+	 * Writes debug message about a single processed item (segment, company code, DC pair).
+	 * Such messages are skipped in aggregated mode.
+	 *
+	 * @param message {@link Supplier} of message text
+	 */
+	public void detail(Supplier<String> message) {
+		if (!aggregated && isDebugEnabled()) trace.addDebugMessage(message.get());
+	}
+
+	/**
+	 * Starts measuring of processing phase with given name.
+	 *
+	 * @param name phase name
+	 *
+	 * @return started {@link Phase}
+	 */
+	public Phase phase(String name) {
+		return new Phase(name);
+	}
+
+	/**
+	 * Processing phase of a message: collects counters and duration and writes one summary line
+	 * on {@link #end()} - with info level in aggregated mode, with debug level otherwise.
+	 */
+	public final class Phase {
+
+		private final String name;
+		private final long started = System.nanoTime();
+		private final boolean enabled = aggregated ? isInfoEnabled() : isDebugEnabled();
+		private Map<String, long[]> counters;
+		private boolean ended;
+
+		private Phase(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Increments counter with given name by 1.
+		 */
+		public void count(String counter) {
+			add(counter, 1);
+		}
+
+		/**
+		 * Increments counter with given name by given value.
+		 */
+		public void add(String counter, long value) {
+			if (!enabled) return;
+			if (counters == null) counters = new LinkedHashMap<>();
+			long[] current = counters.get(counter);
+			if (current == null) {
+				counters.put(counter, new long[]{value});
+			} else {
+				current[0] += value;
+			}
+		}
+
+		/**
+		 * Finishes phase, records its duration to {@link RouterMetrics} and {@link FlightRecord}
+		 * and writes its summary line. Only the first call has effect, so phase may be ended early
+		 * and once again in <code>finally</code> block.
+		 */
+		public void end() {
+			if (ended) return;
+			ended = true;
+
+			long nanos = System.nanoTime() - started;
+			RouterMetrics.getInstance().recordPhase(name, nanos);
+			record.phase(name, nanos);
+			if (!enabled) return;
+
+			StringBuilder sb = new StringBuilder(64);
+			sb.append("Phase '").append(name).append("' finished in ")
+					.append(String.format("%.3f", nanos / 1e6)).append(" ms");
+			if (counters != null) {
+				String separator = ": ";
+				for (Map.Entry<String, long[]> counter : counters.entrySet()) {
+					sb.append(separator).append(counter.getKey()).append('=').append(counter.getValue()[0]);
+					separator = ", ";
+				}
+			}
+
+			if (aggregated) {
+				trace.addInfo(sb.toString());
+			} else {
+				trace.addDebugMessage(sb.toString());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+package ru.sap.po.mapping.hrmd.router.trace;
+
+/**
+ * Level of mapping program trace messages. Each level includes all previous ones.
+ */
+public enum TraceLevel {
+
+	WARNING, INFO, DEBUG;
+
+	/**
+	 * @param value        level name from "router.properties" file, case-insensitive
+	 * @param defaultLevel level to use, if value is missing or unknown
+	 *
+	 * @return parsed {@link TraceLevel}
+	 */
+	public static TraceLevel parse(String value, TraceLevel defaultLevel) {
+		if (value == null) return defaultLevel;
+		for (TraceLevel level : values()) {
+			if (level.name().equalsIgnoreCase(value.trim())) return level;
+		}
+		return defaultLevel;
+	}
+
+}
@@ -0,0 +1,99 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+import ru.sap.po.mapping.hrmd.router.metrics.RouterMetrics;
+import ru.sap.po.mapping.hrmd.router.tools.HrmdSampleGenerator;
+import ru.sap.po.mapping.hrmd.router.tools.LocalMessage;
+import ru.sap.po.mapping.hrmd.router.tools.SimulatedLookupConnector;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation regression suite of {@link HRMD_to_ReceiverDetermination}.
+ *
+ * Processes synthetic <tt>HRMD_A09</tt> messages of several sizes with 'stax' engine and measures bytes
+ * allocated by the test thread (HotSpot thread allocation counters) per message and per <code>E1PLOGI</code>
+ * object. Test fails, if any of per-size budgets is exceeded. Budgets can be replaced with system property
+ * "allocation.budgets": comma-separated list of sizeInKb:bytesPerMessage:bytesPerObject.
+ */
+public class AllocationBudgetTest {
+
+	private static final IcoKey ICO_KEY =
+			new IcoKey("HR_SENDER", "HRMD_A.HRMD_A09", "urn:sap-com:document:sap:idoc:messages");
+
+	private static final long MIN_MEASURED_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * Default budgets of 'stax' engine: message size in KB, bytes per message, bytes per object.
+	 */
+	private static final String DEFAULT_BUDGETS = "10:131072:16384,100:262144:2048,1024:2097152:2048,10240:16777216:2048";
+
+	@AfterClass
+	public static void resetConfiguration() {
+		RouterTestSupport.reset();
+	}
+
+	@Test
+	public void allocationsOfStaxEngineStayWithinBudgets() throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		assumeTrue("Thread allocation counters are not supported by this JVM",
+				threads instanceof com.sun.management.ThreadMXBean);
+
+		RouterTestSupport.configure("stax");
+		Map<String, String> parameters = RouterTestSupport.parameters();
+		HRMD_to_ReceiverDetermination mapping = new HRMD_to_ReceiverDetermination(
+				new SimulatedLookupConnector(0, 0, 0, RouterTestSupport.COMPANY_CODES));
+
+		StringBuilder report = new StringBuilder(String.format("%n%-10s %10s %16s %12s %16s %12s %6s", "size, KB",
+				"objects", "alloc, B/msg", "budget", "alloc, B/obj", "budget", ""));
+		boolean exceeded = false;
+		for (String value : System.getProperty("allocation.budgets", DEFAULT_BUDGETS).split(",")) {
+			String[] budget = value.trim().split(":");
+			long sizeKb = Long.parseLong(budget[0]);
+			long bytesPerMessage = Long.parseLong(budget[1]);
+			long bytesPerObject = Long.parseLong(budget[2]);
+
+			byte[] payload = new HrmdSampleGenerator(HrmdSampleGenerator.personsForSize(sizeKb * 1024), 0.05, 2,
+					RouterTestSupport.COMPANY_CODES, sizeKb).generate();
+			int iterations = (int) Math.max(5, MIN_MEASURED_BYTES / payload.length);
+
+			// Warm-up with the same number of iterations, so measured code is compiled
+			run(mapping, payload, parameters, iterations);
+
+			long objectsBefore = RouterMetrics.getInstance().getObjectsScanned();
+			long allocatedBefore = allocatedBytes(threads);
+			run(mapping, payload, parameters, iterations);
+			long allocated = allocatedBytes(threads) - allocatedBefore;
+			long objects = (RouterMetrics.getInstance().getObjectsScanned() - objectsBefore) / iterations;
+
+			long perMessage = allocated / iterations;
+			long perObject = perMessage / Math.max(1, objects);
+			boolean failed = perMessage > bytesPerMessage || perObject > bytesPerObject;
+			exceeded |= failed;
+			report.append(String.format("%n%-10d %10d %16d %12d %16d %12d %6s", sizeKb, objects,
+					perMessage, bytesPerMessage, perObject, bytesPerObject, failed ? "FAILED" : "OK"));
+		}
+
+		assertTrue("Allocation budget is exceeded:" + report, !exceeded);
+	}
+
+	private static void run(HRMD_to_ReceiverDetermination mapping, byte[] payload, Map<String, String> parameters,
+							int iterations) throws Exception {
+		for (int i = 0; i < iterations; i++) {
+			LocalMessage message = new LocalMessage(payload, ICO_KEY, "alloc-" + i, parameters);
+			mapping.transform(message.getInput(), message.getOutput());
+		}
+	}
+
+	private static long allocatedBytes(ThreadMXBean threads) {
+		return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
@@ -0,0 +1,118 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+import ru.sap.po.mapping.hrmd.router.tools.HrmdSampleGenerator;
+import ru.sap.po.mapping.hrmd.router.tools.LocalMessage;
+import ru.sap.po.mapping.hrmd.router.tools.SimulatedLookupConnector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs many messages in parallel through one {@link HRMD_to_ReceiverDetermination} instance and checks,
+ * that each of them gets exactly the same receivers XML and Dynamic Configuration, as in sequential run.
+ *
+ * Sequential run fills caches, so parallel messages of variants with caches mostly reuse results.
+ * Variants without caches scan, resolve and build result of every parallel message from scratch.
+ */
+@RunWith(Parameterized.class)
+public class ConcurrencyStressTest {
+
+	private static final int THREADS = 8;
+	private static final int MESSAGES = 120;
+	private static final int ROUNDS = 5;
+
+	@Parameterized.Parameters(name = "{0}, lookup prefetch: {1}, caches: {2}")
+	public static List<Object[]> engines() {
+		// Lookup prefetch changes the way of scan only for 'stax' engine
+		return Arrays.asList(new Object[][]{
+				{"stax", false, true}, {"bytes", false, true}, {"dom", false, true}, {"stax", true, true},
+				{"stax", false, false}, {"bytes", false, false}, {"dom", false, false}, {"stax", true, false}
+		});
+	}
+
+	@Parameterized.Parameter
+	public String engine;
+
+	@Parameterized.Parameter(1)
+	public boolean lookupPrefetch;
+
+	@Parameterized.Parameter(2)
+	public boolean caches;
+
+	@AfterClass
+	public static void resetConfiguration() {
+		RouterTestSupport.reset();
+	}
+
+	@Test
+	public void parallelMessagesGetResultsOfSequentialRun() throws Exception {
+		RouterTestSupport.configure(engine, lookupPrefetch, caches);
+		Map<String, String> parameters = RouterTestSupport.parameters();
+		HRMD_to_ReceiverDetermination mapping = new HRMD_to_ReceiverDetermination(
+				new SimulatedLookupConnector(1, 1, 0, RouterTestSupport.COMPANY_CODES));
+
+		// Messages differ in size, company codes, organizational management objects and ICo
+		byte[][] payloads = new byte[MESSAGES][];
+		IcoKey[] icoKeys = new IcoKey[MESSAGES];
+		String[] expected = new String[MESSAGES];
+		for (int i = 0; i < MESSAGES; i++) {
+			payloads[i] = new HrmdSampleGenerator(1 + i % 40, i % 3 == 0 ? 0.2 : 0, i % 4,
+					1 + i % RouterTestSupport.COMPANY_CODES, i).generate();
+			icoKeys[i] = new IcoKey("HR_SENDER_" + (i % 3), "HRMD_A.HRMD_A09", "urn:sap-com:document:sap:idoc:messages");
+			expected[i] = run(mapping, payloads[i], icoKeys[i], parameters);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<String>> results = new ArrayList<>(MESSAGES * ROUNDS);
+			for (int round = 0; round < ROUNDS; round++) {
+				for (int i = 0; i < MESSAGES; i++) {
+					int message = i;
+					Callable<String> task = () -> run(mapping, payloads[message], icoKeys[message], parameters);
+					results.add(executor.submit(task));
+				}
+			}
+
+			int mismatches = 0;
+			String firstMismatch = null;
+			for (int i = 0; i < results.size(); i++) {
+				String actual = results.get(i).get();
+				if (!expected[i % MESSAGES].equals(actual)) {
+					mismatches++;
+					if (firstMismatch == null) {
+						firstMismatch = "message " + i % MESSAGES + ": expected " + expected[i % MESSAGES] + ", got " + actual;
+					}
+				}
+			}
+			assertEquals("Mismatches of parallel run, first is " + firstMismatch, 0, mismatches);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static String run(HRMD_to_ReceiverDetermination mapping, byte[] payload, IcoKey icoKey,
+							  Map<String, String> parameters) throws Exception {
+		LocalMessage message = new LocalMessage(payload, icoKey, "stress", parameters);
+		mapping.transform(message.getInput(), message.getOutput());
+
+		Map<String, String> dynamicConfiguration = new TreeMap<>();
+		message.getDynamicConfiguration().forEach((key, value) -> dynamicConfiguration.put(key.getName(), value));
+		return dynamicConfiguration + " " + new String(message.getOutputBytes(), StandardCharsets.UTF_8);
+	}
+
+}
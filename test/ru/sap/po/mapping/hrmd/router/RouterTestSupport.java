@@ -0,0 +1,88 @@
+package ru.sap.po.mapping.hrmd.router;
+
+import ru.sap.po.mapping.hrmd.router.config.RouterPropertiesHandler;
+import ru.sap.po.mapping.hrmd.router.tools.HrmdSampleGenerator;
+import ru.sap.po.mapping.hrmd.router.tools.LoadDriver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Configuration and Operation Mapping parameters of test scenario.
+ */
+final class RouterTestSupport {
+
+	/**
+	 * Number of distinct company codes of synthetic messages.
+	 */
+	static final int COMPANY_CODES = 50;
+
+	private RouterTestSupport() {
+	}
+
+	/**
+	 * @return properties of "router.properties" of mapping program
+	 */
+	static Properties defaultProperties() {
+		Properties properties = new Properties();
+		try (InputStream is = RouterTestSupport.class.getClassLoader().getResourceAsStream("router.properties")) {
+			if (is != null) properties.load(is);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+		return properties;
+	}
+
+	/**
+	 * Publishes configuration of "router.properties" with given parser engine.
+	 *
+	 * @param engine value of "parser.engine"
+	 */
+	static void configure(String engine) {
+		configure(engine, false, true);
+	}
+
+	/**
+	 * Publishes configuration of "router.properties" with given parser engine, lookup prefetch and caches.
+	 *
+	 * @param engine         value of "parser.engine"
+	 * @param lookupPrefetch value of "lookup.prefetch.enabled"
+	 * @param caches         {@code false} to disable caches of routing results, routing tables and ICo lookup,
+	 *                       so each message is scanned, resolved and built from scratch
+	 */
+	static void configure(String engine, boolean lookupPrefetch, boolean caches) {
+		Properties properties = defaultProperties();
+		properties.setProperty("parser.engine", engine);
+		properties.setProperty("lookup.prefetch.enabled", String.valueOf(lookupPrefetch));
+		if (!caches) {
+			properties.setProperty("routing.result.cache.max.entries", "0");
+			properties.setProperty("routing.table.ttl.seconds", "0");
+			properties.setProperty("lookup.cache.ttl.seconds", "0");
+		}
+		RouterPropertiesHandler.getInstance().setProperties(properties);
+	}
+
+	/**
+	 * Publishes configuration of "router.properties" without changes.
+	 */
+	static void reset() {
+		RouterPropertiesHandler.getInstance().setProperties(defaultProperties());
+	}
+
+	/**
+	 * @return Operation Mapping parameters of company codes of synthetic messages, every 7th company code
+	 * has no parameter
+	 */
+	static Map<String, String> parameters() {
+		Map<String, String> parameters = new HashMap<>();
+		for (int i = 0; i < COMPANY_CODES; i++) {
+			if (i % 7 != 6) parameters.put(HrmdSampleGenerator.parameterName(i), LoadDriver.receiverSystem(i));
+		}
+		return parameters;
+	}
+
+}
@@ -0,0 +1,216 @@
+package ru.sap.po.mapping.hrmd.router.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generator of synthetic <tt>HRMD_A09</tt> IDOC messages for performance measurements.
+ *
+ * Message shape is controlled by number of <code>E1PLOGI</code> person objects, share of organizational
+ * management objects, number of historical (not current) <code>E1P0001</code> segments per person and
+ * number of distinct company codes. Company codes are 'C000', 'C001' etc., so Operation Mapping
+ * parameters of test scenario are "RC000", "RC001" etc. Output is written as a stream, so messages
+ * of any size can be generated without keeping them in memory.
+ *
+ * Can be run from command line to generate a directory of messages:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar ru.sap.po.mapping.hrmd.router.tools.HrmdSampleGenerator &lt;dir&gt; &lt;persons&gt; [omRatio] [historical] [companyCodes] [count]
+ * </pre>
+ */
+public class HrmdSampleGenerator {
+
+	/**
+	 * Approximate size of one generated person object with one historical segment, in bytes.
+	 */
+	public static final int APPROXIMATE_PERSON_SIZE = 1200;
+
+	private final int persons;
+	private final double omRatio;
+	private final int historicalSegments;
+	private final int companyCodes;
+	private final long seed;
+
+	/**
+	 * @param persons            number of person (<code>OTYPE</code> == 'P') objects
+	 * @param omRatio            number of organizational management objects per person object
+	 * @param historicalSegments number of historical <code>E1P0001</code> segments per person
+	 * @param companyCodes       number of distinct company codes
+	 * @param seed               seed of pseudo-random values, the same seed gives the same message
+	 */
+	public HrmdSampleGenerator(int persons, double omRatio, int historicalSegments, int companyCodes, long seed) {
+		this.persons = persons;
+		this.omRatio = omRatio;
+		this.historicalSegments = historicalSegments;
+		this.companyCodes = Math.max(1, companyCodes);
+		this.seed = seed;
+	}
+
+	/**
+	 * Method returns number of person objects needed to generate message of given size.
+	 *
+	 * @param payloadSize desired message size in bytes
+	 *
+	 * @return number of person objects
+	 */
+	public static int personsForSize(long payloadSize) {
+		return (int) Math.max(1, payloadSize / APPROXIMATE_PERSON_SIZE);
+	}
+
+	/**
+	 * @return name of Operation Mapping parameter for company code with given index
+	 */
+	public static String parameterName(int companyCodeIndex) {
+		return "R" + companyCode(companyCodeIndex);
+	}
+
+	/**
+	 * @return company code with given index
+	 */
+	public static String companyCode(int companyCodeIndex) {
+		return String.format("C%03d", companyCodeIndex);
+	}
+
+	/**
+	 * Method generates the whole message into byte array.
+	 *
+	 * @return UTF-8 encoded message
+	 */
+	public byte[] generate() {
+		ByteArrayOutputStream os = new ByteArrayOutputStream(Math.max(1024, persons * APPROXIMATE_PERSON_SIZE));
+		try {
+			write(os);
+		} catch (IOException ioe) {
+			throw new IllegalStateException(ioe);
+		}
+		return os.toByteArray();
+	}
+
+	/**
+	 * Method writes message to given {@link OutputStream}. Stream is flushed, but not closed.
+	 *
+	 * @param os target {@link OutputStream}
+	 * @throws IOException if writing fails
+	 */
+	public void write(OutputStream os) throws IOException {
+		Random random = new Random(seed);
+		Writer w = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+
+		w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><HRMD_A09><IDOC BEGIN=\"1\">");
+		w.write("<EDI_DC40 SEGMENT=\"1\"><TABNAM>EDI_DC40</TABNAM><MANDT>100</MANDT><DOCNUM>");
+		w.write(String.format("%016d", seed));
+		w.write("</DOCNUM><DIRECT>1</DIRECT><IDOCTYP>HRMD_A09</IDOCTYP><MESTYP>HRMD_A</MESTYP>");
+		w.write("<SNDPOR>SAPHR</SNDPOR><SNDPRT>LS</SNDPRT><SNDPRN>HRCLNT100</SNDPRN></EDI_DC40>");
+
+		double omBalance = 0;
+		for (int i = 0; i < persons; i++) {
+			writePerson(w, random, 10000000 + i);
+			omBalance += omRatio;
+			while (omBalance >= 1) {
+				writeOrgObject(w, random, 50000000 + i);
+				omBalance--;
+			}
+		}
+
+		w.write("</IDOC></HRMD_A09>");
+		w.flush();
+	}
+
+	private void writePerson(Writer w, Random random, int objectId) throws IOException {
+		String id = String.valueOf(objectId);
+		String companyCode = companyCode(random.nextInt(companyCodes));
+
+		w.write("<E1PLOGI SEGMENT=\"1\"><PLVAR>01</PLVAR><OTYPE>P</OTYPE><OBJID>");
+		w.write(id);
+		w.write("</OBJID><PROOF>X</PROOF><OPERA>I</OPERA>");
+
+		w.write("<E1PITYP SEGMENT=\"1\"><PLVAR>01</PLVAR><OTYPE>P</OTYPE><OBJID>");
+		w.write(id);
+		w.write("</OBJID><INFTY>0001</INFTY><BEGDA>19000101</BEGDA><ENDDA>99991231</ENDDA>");
+		for (int h = 0; h < historicalSegments; h++) {
+			int year = 2000 + h;
+			writeOrgAssignment(w, id, companyCode(random.nextInt(companyCodes)), year + "0101", year + "1231");
+		}
+		writeOrgAssignment(w, id, companyCode, "20200101", "99991231");
+		w.write("</E1PITYP>");
+
+		w.write("<E1PITYP SEGMENT=\"1\"><PLVAR>01</PLVAR><OTYPE>P</OTYPE><OBJID>");
+		w.write(id);
+		w.write("</OBJID><INFTY>0002</INFTY><BEGDA>19000101</BEGDA><ENDDA>99991231</ENDDA>");
+		w.write("<E1P0002 SEGMENT=\"1\"><PERNR>");
+		w.write(id);
+		w.write("</PERNR><INFTY>0002</INFTY><ENDDA>99991231</ENDDA><BEGDA>19800101</BEGDA>");
+		w.write("<NACHN>Surname");
+		w.write(Integer.toString(random.nextInt(100000)));
+		w.write("</NACHN><VORNA>Name</VORNA><GESCH>1</GESCH><GBDAT>19800101</GBDAT></E1P0002></E1PITYP>");
+
+		w.write("</E1PLOGI>");
+	}
+
+	private void writeOrgAssignment(Writer w, String id, String companyCode, String beginDate, String endDate)
+			throws IOException {
+		w.write("<E1P0001 SEGMENT=\"1\"><PERNR>");
+		w.write(id);
+		w.write("</PERNR><INFTY>0001</INFTY><ENDDA>");
+		w.write(endDate);
+		w.write("</ENDDA><BEGDA>");
+		w.write(beginDate);
+		w.write("</BEGDA><BUKRS>");
+		w.write(companyCode);
+		w.write("</BUKRS><WERKS>W001</WERKS><PERSG>1</PERSG><PERSK>01</PERSK><ABKRS>01</ABKRS>");
+		w.write("<KOSTL>0000100000</KOSTL><ORGEH>50000001</ORGEH><PLANS>50000002</PLANS></E1P0001>");
+	}
+
+	private void writeOrgObject(Writer w, Random random, int objectId) throws IOException {
+		String id = String.valueOf(objectId);
+		String objectType = random.nextBoolean() ? "O" : "S";
+
+		w.write("<E1PLOGI SEGMENT=\"1\"><PLVAR>01</PLVAR><OTYPE>");
+		w.write(objectType);
+		w.write("</OTYPE><OBJID>");
+		w.write(id);
+		w.write("</OBJID><PROOF>X</PROOF><OPERA>I</OPERA>");
+		w.write("<E1PITYP SEGMENT=\"1\"><PLVAR>01</PLVAR><OTYPE>");
+		w.write(objectType);
+		w.write("</OTYPE><OBJID>");
+		w.write(id);
+		w.write("</OBJID><INFTY>1000</INFTY><BEGDA>19000101</BEGDA><ENDDA>99991231</ENDDA>");
+		w.write("<E1P1000 SEGMENT=\"1\"><INFTY>1000</INFTY><ENDDA>99991231</ENDDA><BEGDA>19000101</BEGDA>");
+		w.write("<SHORT>OBJ");
+		w.write(id);
+		w.write("</SHORT><STEXT>Organizational object</STEXT></E1P1000></E1PITYP>");
+		w.write("</E1PLOGI>");
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: HrmdSampleGenerator <dir> <persons> [omRatio] [historical] [companyCodes] [count]");
+			System.exit(1);
+		}
+
+		Path dir = Paths.get(args[0]);
+		int persons = Integer.parseInt(args[1]);
+		double omRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.0;
+		int historical = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		int companyCodes = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+		int count = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+
+		Files.createDirectories(dir);
+		for (int i = 0; i < count; i++) {
+			Path file = dir.resolve(String.format("HRMD_A09_%05d.xml", i));
+			try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+				new HrmdSampleGenerator(persons, omRatio, historical, companyCodes, i).write(os);
+			}
+			System.out.println("Generated " + file + " (" + Files.size(file) + " bytes)");
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+package ru.sap.po.mapping.hrmd.router.tools;
+
+import ru.sap.po.mapping.hrmd.router.HRMD_to_ReceiverDetermination;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load driver of {@link HRMD_to_ReceiverDetermination}.
+ *
+ * Replays all XML files of given directory (captured or generated with {@link HrmdSampleGenerator})
+ * through one mapping instance on N worker threads. ICo lookup is served by {@link SimulatedLookupConnector}
+ * with configurable latency and failure rate. Prints latency percentiles, throughput and heap high-water mark.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar ru.sap.po.mapping.hrmd.router.tools.LoadDriver &lt;dir&gt; [threads] [messages] [latencyMs] [failureRate] [companyCodes]
+ * </pre>
+ * Mapping configuration is read from "router.properties" on classpath as usual, e.g. lookup cache
+ * TTL can be set to 0 there to pay lookup latency on every OM message.
+ */
+public class LoadDriver {
+
+	private static final IcoKey ICO_KEY =
+			new IcoKey("HR_SENDER", "HRMD_A.HRMD_A09", "urn:sap-com:document:sap:idoc:messages");
+
+	/**
+	 * @return receiver system of company code with given index in load test scenario
+	 */
+	public static String receiverSystem(int companyCodeIndex) {
+		return "RECEIVER_" + (companyCodeIndex % 10);
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: LoadDriver <dir> [threads] [messages] [latencyMs] [failureRate] [companyCodes]");
+			System.exit(1);
+		}
+
+		List<byte[]> payloads = readPayloads(Paths.get(args[0]));
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int messages = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		long latencyMillis = args.length > 3 ? Long.parseLong(args[3]) : 50;
+		double failureRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.0;
+		int companyCodes = args.length > 5 ? Integer.parseInt(args[5]) : 50;
+
+		if (payloads.isEmpty()) {
+			System.err.println("No XML files found in " + args[0]);
+			System.exit(1);
+		}
+
+		// Every 7th company code has no Operation Mapping parameter
+		Map<String, String> parameters = new HashMap<>();
+		for (int i = 0; i < companyCodes; i++) {
+			if (i % 7 != 6) parameters.put(HrmdSampleGenerator.parameterName(i), receiverSystem(i));
+		}
+
+		SimulatedLookupConnector connector =
+				new SimulatedLookupConnector(latencyMillis, latencyMillis / 5, failureRate, companyCodes);
+		HRMD_to_ReceiverDetermination mapping = new HRMD_to_ReceiverDetermination(connector);
+
+		// Warm-up run is not measured
+		run(mapping, payloads, parameters, threads, Math.min(messages, 1000));
+
+		resetHeapPeaks();
+		long started = System.nanoTime();
+		Result result = run(mapping, payloads, parameters, threads, messages);
+		long elapsed = System.nanoTime() - started;
+
+		long[] latencies = result.latencies;
+		Arrays.sort(latencies);
+		System.out.println(String.format("Messages: %d, threads: %d, payloads: %d, errors: %d",
+				messages, threads, payloads.size(), result.errors.get()));
+		System.out.println(String.format("Throughput: %.1f msg/s", messages / (elapsed / 1e9)));
+		System.out.println(String.format("Latency, ms: p50 %.3f, p99 %.3f, p999 %.3f, max %.3f",
+				percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+				latencies[latencies.length - 1] / 1e6));
+		System.out.println(String.format("Lookup calls: %d, failed: %d", connector.getCalls(), connector.getFailures()));
+		System.out.println(String.format("Heap high-water mark: %d MB", heapPeak() / (1024 * 1024)));
+	}
+
+	private static Result run(HRMD_to_ReceiverDetermination mapping, List<byte[]> payloads,
+							  Map<String, String> parameters, int threads, int messages) throws Exception {
+		Result result = new Result(messages);
+		AtomicLong sequence = new AtomicLong();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> workers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				workers.add(executor.submit(() -> {
+					long i;
+					while ((i = sequence.getAndIncrement()) < messages) {
+						LocalMessage message = new LocalMessage(payloads.get((int) (i % payloads.size())),
+								ICO_KEY, "load-" + i, parameters);
+						long started = System.nanoTime();
+						try {
+							mapping.transform(message.getInput(), message.getOutput());
+						} catch (Exception e) {
+							result.errors.incrementAndGet();
+						}
+						result.latencies[(int) i] = System.nanoTime() - started;
+					}
+				}));
+			}
+			for (Future<?> worker : workers) worker.get();
+		} finally {
+			executor.shutdown();
+		}
+		return result;
+	}
+
+	private static List<byte[]> readPayloads(Path dir) throws IOException {
+		List<byte[]> payloads = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.xml")) {
+			for (Path file : files) payloads.add(Files.readAllBytes(file));
+		}
+		return payloads;
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+
+	private static void resetHeapPeaks() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+		}
+	}
+
+	private static long heapPeak() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+
+	private static final class Result {
+		private final long[] latencies;
+		private final AtomicLong errors = new AtomicLong();
+
+		private Result(int messages) {
+			this.latencies = new long[messages];
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+package ru.sap.po.mapping.hrmd.router.tools;
+
+import com.sap.aii.mapping.api.DynamicConfiguration;
+import com.sap.aii.mapping.api.DynamicConfigurationKey;
+import com.sap.aii.mapping.api.InputHeader;
+import com.sap.aii.mapping.api.InputParameters;
+import com.sap.aii.mapping.api.InputPayload;
+import com.sap.aii.mapping.api.OutputPayload;
+import com.sap.aii.mapping.api.TransformationInput;
+import com.sap.aii.mapping.api.TransformationOutput;
+import com.sap.aii.mapping.api.UndefinedParameterException;
+import com.sap.aii.mapping.lookup.Channel;
+import ru.sap.po.mapping.hrmd.router.lookup.IcoKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * In-memory stand-ins of SAP PO mapping runtime objects, which allow to run
+ * mapping program outside of SAP PO: in load tests and benchmarks.
+ */
+public final class LocalMessage {
+
+	private final TransformationInput input;
+	private final TransformationOutput output;
+	private final ByteArrayOutputStream outputBytes = new ByteArrayOutputStream(512);
+	private final Map<DynamicConfigurationKey, String> dynamicConfiguration = new HashMap<>();
+
+	/**
+	 * @param payload    incoming message payload
+	 * @param icoKey     sender component, interface name and namespace of the message
+	 * @param messageId  message ID
+	 * @param parameters Operation Mapping parameters, missing parameters have {@code null} value
+	 */
+	public LocalMessage(byte[] payload, IcoKey icoKey, String messageId, Map<String, String> parameters) {
+		this(payload, icoKey, messageId, parameters, null);
+	}
+
+	/**
+	 * @param payload         incoming message payload
+	 * @param icoKey          sender component, interface name and namespace of the message
+	 * @param messageId       message ID
+	 * @param parameters      Operation Mapping parameters, missing parameters have {@code null} value
+	 * @param receiverService receiver system of the message, determined by receiver determination
+	 */
+	public LocalMessage(byte[] payload, IcoKey icoKey, String messageId, Map<String, String> parameters,
+						String receiverService) {
+		this.input = new LocalInput(payload, new LocalHeader(icoKey, messageId, receiverService),
+				new LocalParameters(parameters), new LocalDynamicConfiguration(dynamicConfiguration));
+		this.output = new TransformationOutput() {
+			private final OutputPayload payload = new OutputPayload() {
+				@Override
+				public OutputStream getOutputStream() {
+					return outputBytes;
+				}
+			};
+
+			@Override
+			public OutputPayload getOutputPayload() {
+				return payload;
+			}
+		};
+	}
+
+	public TransformationInput getInput() {
+		return input;
+	}
+
+	public TransformationOutput getOutput() {
+		return output;
+	}
+
+	/**
+	 * @return bytes written by mapping program to output payload
+	 */
+	public byte[] getOutputBytes() {
+		return outputBytes.toByteArray();
+	}
+
+	/**
+	 * @return unmodifiable view of Dynamic Configuration entries written by mapping program
+	 */
+	public Map<DynamicConfigurationKey, String> getDynamicConfiguration() {
+		return Collections.unmodifiableMap(dynamicConfiguration);
+	}
+
+	private static final class LocalInput extends TransformationInput {
+		private final byte[] payload;
+		private final InputHeader header;
+		private final InputParameters parameters;
+		private final DynamicConfiguration dynamicConfiguration;
+
+		private LocalInput(byte[] payload, InputHeader header, InputParameters parameters,
+						   DynamicConfiguration dynamicConfiguration) {
+			this.payload = payload;
+			this.header = header;
+			this.parameters = parameters;
+			this.dynamicConfiguration = dynamicConfiguration;
+		}
+
+		@Override
+		public InputPayload getInputPayload() {
+			return new InputPayload() {
+				private final InputStream is = new ByteArrayInputStream(payload);
+
+				@Override
+				public InputStream getInputStream() {
+					return is;
+				}
+			};
+		}
+
+		@Override
+		public InputHeader getInputHeader() {
+			return header;
+		}
+
+		@Override
+		public InputParameters getInputParameters() {
+			return parameters;
+		}
+
+		@Override
+		public DynamicConfiguration getDynamicConfiguration() {
+			return dynamicConfiguration;
+		}
+	}
+
+	private static final class LocalHeader extends InputHeader {
+		private final IcoKey icoKey;
+		private final String messageId;
+		private final String receiverService;
+
+		private LocalHeader(IcoKey icoKey, String messageId, String receiverService) {
+			this.icoKey = icoKey;
+			this.messageId = messageId;
+			this.receiverService = receiverService;
+		}
+
+		@Override
+		public String getMessageId() {
+			return messageId;
+		}
+
+		@Override
+		public String getSenderService() {
+			return icoKey.getSenderComponent();
+		}
+
+		@Override
+		public String getInterface() {
+			return icoKey.getInterfaceName();
+		}
+
+		@Override
+		public String getInterfaceNamespace() {
+			return icoKey.getInterfaceNamespace();
+		}
+
+		@Override
+		public String getReceiverService() {
+			return receiverService;
+		}
+	}
+
+	private static final class LocalParameters extends InputParameters {
+		private final Map<String, String> parameters;
+
+		private LocalParameters(Map<String, String> parameters) {
+			this.parameters = parameters;
+		}
+
+		@Override
+		public String getString(String name) throws UndefinedParameterException {
+			return parameters.get(name);
+		}
+
+		@Override
+		public Object getValue(String name) throws UndefinedParameterException {
+			return parameters.get(name);
+		}
+
+		@Override
+		public int getInt(String name) throws UndefinedParameterException {
+			return Integer.parseInt(parameters.get(name));
+		}
+
+		@Override
+		public Channel getChannel(String name) throws UndefinedParameterException {
+			return null;
+		}
+	}
+
+	private static final class LocalDynamicConfiguration extends DynamicConfiguration {
+		private final Map<DynamicConfigurationKey, String> entries;
+
+		private LocalDynamicConfiguration(Map<DynamicConfigurationKey, String> entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		public String put(DynamicConfigurationKey key, String value) {
+			return entries.put(key, value);
+		}
+
+		@Override
+		public String get(DynamicConfigurationKey key) {
+			return entries.get(key);
+		}
+
+		@Override
+		public Iterator<DynamicConfigurationKey> getKeys() {
+			return entries.keySet().iterator();
+		}
+
+		@Override
+		public String removeKey(DynamicConfigurationKey key) {
+			return entries.remove(key);
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package ru.sap.po.mapping.hrmd.router.tools;
+
+import com.sap.aii.mapping.lookup.LookupException;
+import ru.sap.po.mapping.hrmd.router.lookup.LookupConnector;
+import ru.sap.po.mapping.hrmd.router.trace.RouterTrace;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link LookupConnector} that simulates <tt>IntegratedConfiguration750In</tt> service: answers with
+ * <code>MappingParamters</code> of all company codes of {@link HrmdSampleGenerator} after configurable
+ * latency and fails configurable share of calls.
+ */
+public class SimulatedLookupConnector implements LookupConnector {
+
+	private final long latencyMillis;
+	private final long jitterMillis;
+	private final double failureRate;
+	private final byte[] response;
+
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * @param latencyMillis mean latency of a call
+	 * @param jitterMillis  maximum random deviation of latency
+	 * @param failureRate   share of failed calls, from 0 to 1
+	 * @param companyCodes  number of company codes in response
+	 */
+	public SimulatedLookupConnector(long latencyMillis, long jitterMillis, double failureRate, int companyCodes) {
+		this.latencyMillis = latencyMillis;
+		this.jitterMillis = jitterMillis;
+		this.failureRate = failureRate;
+		this.response = createResponse(companyCodes);
+	}
+
+	@Override
+	public InputStream call(String service, String channel, byte[] request, RouterTrace trace)
+			throws LookupException {
+		calls.incrementAndGet();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		long latency = latencyMillis + (jitterMillis > 0 ? random.nextLong(-jitterMillis, jitterMillis + 1) : 0);
+		if (latency > 0) {
+			try {
+				TimeUnit.MILLISECONDS.sleep(latency);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new LookupException("Simulated lookup was interrupted");
+			}
+		}
+
+		if (random.nextDouble() < failureRate) {
+			failures.incrementAndGet();
+			throw new LookupException("Simulated lookup failure");
+		}
+
+		return new ByteArrayInputStream(response);
+	}
+
+	public long getCalls() {
+		return calls.get();
+	}
+
+	public long getFailures() {
+		return failures.get();
+	}
+
+	private static byte[] createResponse(int companyCodes) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<ns1:IntegratedConfigurationReadResponse xmlns:ns1=\"http://sap.com/xi/BASIS\">");
+		sb.append("<IntegratedConfiguration><MappingParamters>");
+		for (int i = 0; i < companyCodes; i++) {
+			sb.append("<String><Name>").append(HrmdSampleGenerator.companyCode(i)).append("</Name>");
+			sb.append("<Value>").append(LoadDriver.receiverSystem(i)).append("</Value></String>");
+		}
+		sb.append("</MappingParamters></IntegratedConfiguration></ns1:IntegratedConfigurationReadResponse>");
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+}